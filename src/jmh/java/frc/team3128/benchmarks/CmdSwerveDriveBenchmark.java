@@ -0,0 +1,60 @@
+package frc.team3128.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.team3128.commands.CmdSwerveDrive;
+
+/**
+ * Cost of one teleop drive cycle. The jmh task fails if gc.alloc.rate.norm shows it allocating.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CmdSwerveDriveBenchmark {
+
+    @Param({"Blue", "Red"})
+    public Alliance alliance;
+
+    private double x = 0.4;
+    private double y = -0.7;
+    private double z = 0.2;
+
+    private CmdSwerveDrive command;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimSetup.init(alliance);
+        command = new CmdSwerveDrive(()-> x, ()-> y, ()-> z, true);
+        command.initialize();
+    }
+
+    @Benchmark
+    public void execute() {
+        command.execute();
+    }
+
+    @Benchmark
+    public void executeHoldingHeading() {
+        CmdSwerveDrive.setTurnSetpoint(90);
+        z = 0;
+        command.execute();
+        z = 0.2;
+    }
+}
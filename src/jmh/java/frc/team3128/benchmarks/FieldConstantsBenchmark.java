@@ -0,0 +1,63 @@
+package frc.team3128.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.team3128.Constants.FieldConstants;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldConstantsBenchmark {
+
+    @Param({"Blue", "Red"})
+    public Alliance alliance;
+
+    private final Pose2d pose = new Pose2d(2.5, 5.5, Rotation2d.fromDegrees(30));
+    private final Translation2d translation = new Translation2d(2.5, 5.5);
+    private final Rotation2d rotation = Rotation2d.fromDegrees(30);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimSetup.init(alliance);
+    }
+
+    @Benchmark
+    public Pose2d allianceFlipPose() {
+        return FieldConstants.allianceFlip(pose);
+    }
+
+    @Benchmark
+    public Translation2d allianceFlipTranslation() {
+        return FieldConstants.allianceFlip(translation);
+    }
+
+    @Benchmark
+    public Rotation2d allianceFlipRotation() {
+        return FieldConstants.allianceFlip(rotation);
+    }
+
+    @Benchmark
+    public Pose2d flip() {
+        return FieldConstants.flip(pose);
+    }
+}
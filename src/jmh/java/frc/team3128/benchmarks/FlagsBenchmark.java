@@ -0,0 +1,67 @@
+package frc.team3128.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+
+import static edu.wpi.first.wpilibj2.command.Commands.none;
+import static frc.team3128.Constants.Flags.*;
+
+/**
+ * Cost of the beam break flags and of polling triggers bound to them the way the subsystems do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlagsBenchmark {
+
+    private final EventLoop loop = new EventLoop();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimSetup.init(Alliance.Blue);
+        new Trigger(loop, shooterHasNote).onTrue(none());
+        new Trigger(loop, hopperHasNote).onTrue(none());
+        new Trigger(loop, hasTwoNotes).onTrue(none());
+        new Trigger(loop, hasNoNotes).onTrue(none());
+        new Trigger(loop, noteAdvanceRequired).onTrue(none());
+        new Trigger(loop, not(hopperHasNote)).onTrue(none());
+    }
+
+    @Benchmark
+    public boolean shooterHasNote() {
+        return shooterHasNote.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean hasTwoNotes() {
+        return hasTwoNotes.getAsBoolean();
+    }
+
+    @Benchmark
+    public boolean noteAdvanceRequired() {
+        return noteAdvanceRequired.getAsBoolean();
+    }
+
+    @Benchmark
+    public void pollTriggers() {
+        loop.poll();
+    }
+}
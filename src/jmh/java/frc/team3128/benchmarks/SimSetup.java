@@ -0,0 +1,24 @@
+package frc.team3128.benchmarks;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.team3128.Robot;
+
+/**
+ * Brings up the WPILib HAL sim so benchmarks can construct the robot the same way it is constructed on the roboRIO.
+ */
+public final class SimSetup {
+
+    private static boolean initialized = false;
+
+    private SimSetup() {}
+
+    public static synchronized void init(Alliance alliance) {
+        if (!initialized) {
+            HAL.initialize(500, 0);
+            initialized = true;
+        }
+        // touching Robot constructs RobotContainer and every subsystem
+        Robot.alliance = alliance;
+    }
+}
@@ -0,0 +1,59 @@
+package frc.team3128.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.team3128.subsystems.Swerve;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SwerveBenchmark {
+
+    @Param({"Blue", "Red"})
+    public Alliance alliance;
+
+    private final Translation2d target = new Translation2d(0.1, 5.5);
+    private final ChassisSpeeds velocity = new ChassisSpeeds(1.5, 2, 0);
+
+    private Swerve swerve;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimSetup.init(alliance);
+        swerve = Swerve.getInstance();
+    }
+
+    @Benchmark
+    public double getTurnAngle() {
+        return swerve.getTurnAngle();
+    }
+
+    @Benchmark
+    public double getDist() {
+        return swerve.getDist();
+    }
+
+    @Benchmark
+    public Translation2d calculateTarget() {
+        return Swerve.calculateTarget(target, velocity, 0.3);
+    }
+}
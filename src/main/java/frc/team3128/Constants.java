@@ -20,6 +20,7 @@ import common.hardware.motorcontroller.NAR_CANSpark.SparkMaxConfig;
 import common.hardware.motorcontroller.NAR_Motor.MotorConfig;
 import common.hardware.motorcontroller.NAR_Motor.Neutral;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
@@ -29,8 +30,12 @@ import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import frc.team3128.subsystems.Amper;
 import frc.team3128.subsystems.Hopper;
+import frc.team3128.subsystems.Intake;
 import frc.team3128.subsystems.Shooter;
 import frc.team3128.subsystems.Swerve;
+import frc.team3128.util.InterpolatingTable;
+import frc.team3128.util.SensorSnapshot;
+import frc.team3128.util.SensorSnapshot.Condition;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
@@ -63,6 +68,20 @@ public class Constants {
         public static final double RAMP_THRESHOLD = 9; //8, 10
         public static final double DRIVE_SPEED = Units.inchesToMeters(20); //30, 40
 
+        public static final String AUTO_DIRECTORY = "pathplanner/autos";
+        public static final String PATH_DIRECTORY = "pathplanner/paths";
+        public static final String COMPILED_PATH_DIRECTORY = "trajectories/paths";
+        public static final String COMPILED_AUTO_DIRECTORY = "trajectories/autos";
+
+        public static final String NAVGRID_FILE = "pathplanner/navgrid.json";
+        public static final String COMPILED_NAVGRID_FILE = "trajectories/navgrid.bin";
+        public static final double NAV_MIN_CLEARANCE = 0.15;
+        public static final double NAV_PREFERRED_CLEARANCE = 0.6;
+        public static final double NAV_CLEARANCE_WEIGHT = 2;
+        public static final double NAV_LOCATION_TOLERANCE = 0.5;
+        public static final double AUTO_WARMUP_STEP = 0.02;
+        public static final long AUTO_CACHE_ENABLED_SLEEP = 100;
+
     }
 
     public static class SwerveConstants {
@@ -80,6 +99,14 @@ public class Constants {
 
         public static final double closedLoopRamp = 0.0;
 
+        /* High Rate Odometry */
+        public static final String CANBUS = "Drivetrain";
+        public static final double ODOMETRY_FREQUENCY = 250;
+        // roboRIO bus, kept at the rate the yaw always ran at
+        public static final double GYRO_FREQUENCY = 100;
+        public static final int POSE_HISTORY_CAPACITY = 512;
+        public static final double DEVICE_READY_TIMEOUT = 1;
+
         public static final double driveGearRatio = 225.0 / 42.0;
         public static final double angleGearRatio = (300.0 / 13.0); 
 
@@ -128,9 +155,12 @@ public class Constants {
         /* Angle Encoder Invert */
         public static final boolean canCoderInvert = false;
 
-        public static final MotorConfig driveMotorConfig = new MotorConfig(SwerveConversions.rotationsToMeters(1, wheelCircumference, driveGearRatio), 60, driveLimit, driveMotorInvert, Neutral.BRAKE);
+        public static final double DRIVE_METERS_PER_ROTATION = SwerveConversions.rotationsToMeters(1, wheelCircumference, driveGearRatio);
+        public static final double ANGLE_DEGREES_PER_ROTATION = SwerveConversions.rotationsToDegrees(1, angleGearRatio);
 
-        public static final MotorConfig angleMotorConfig = new MotorConfig(SwerveConversions.rotationsToDegrees(1, angleGearRatio), 1, angleLimit, angleMotorInvert, Neutral.BRAKE);
+        public static final MotorConfig driveMotorConfig = new MotorConfig(DRIVE_METERS_PER_ROTATION, 60, driveLimit, driveMotorInvert, Neutral.BRAKE);
+
+        public static final MotorConfig angleMotorConfig = new MotorConfig(ANGLE_DEGREES_PER_ROTATION, 1, angleLimit, angleMotorInvert, Neutral.BRAKE);
 
         public static final PIDFFConfig drivePIDConfig = new PIDFFConfig(driveKP, driveKI, driveKD, driveKS, driveKV, driveKA);
 
@@ -138,31 +168,31 @@ public class Constants {
 
         public static final SwerveModuleConfig Mod0 = new SwerveModuleConfig(
             0, 
-            new SwerveMotorConfig(new NAR_TalonFX(1, "Drivetrain"), driveMotorConfig, drivePIDConfig),
-            new SwerveMotorConfig(new NAR_TalonFX(2, "Drivetrain"), angleMotorConfig, anglePIDConfig),
-            new SwerveEncoderConfig(new CANcoder(11, "Drivetrain"), 105.15, canCoderInvert),
+            new SwerveMotorConfig(new NAR_TalonFX(1, CANBUS), driveMotorConfig, drivePIDConfig),
+            new SwerveMotorConfig(new NAR_TalonFX(2, CANBUS), angleMotorConfig, anglePIDConfig),
+            new SwerveEncoderConfig(new CANcoder(11, CANBUS), 105.15, canCoderInvert),
             maxSpeed
         );
 
         public static final SwerveModuleConfig Mod1 = new SwerveModuleConfig(
             1, 
-            new SwerveMotorConfig(new NAR_TalonFX(3, "Drivetrain"), driveMotorConfig, drivePIDConfig),
-            new SwerveMotorConfig(new NAR_TalonFX(4, "Drivetrain"), angleMotorConfig, anglePIDConfig),
-            new SwerveEncoderConfig(new CANcoder(12, "Drivetrain"), -62.40234375, canCoderInvert),
+            new SwerveMotorConfig(new NAR_TalonFX(3, CANBUS), driveMotorConfig, drivePIDConfig),
+            new SwerveMotorConfig(new NAR_TalonFX(4, CANBUS), angleMotorConfig, anglePIDConfig),
+            new SwerveEncoderConfig(new CANcoder(12, CANBUS), -62.40234375, canCoderInvert),
             maxSpeed);
         
         public static final SwerveModuleConfig Mod2 = new SwerveModuleConfig(
             2, 
-            new SwerveMotorConfig(new NAR_TalonFX(5, "Drivetrain"), driveMotorConfig, drivePIDConfig),
-            new SwerveMotorConfig(new NAR_TalonFX(6, "Drivetrain"), angleMotorConfig, anglePIDConfig),
-            new SwerveEncoderConfig(new CANcoder(13, "Drivetrain"), -84.287109375, canCoderInvert),
+            new SwerveMotorConfig(new NAR_TalonFX(5, CANBUS), driveMotorConfig, drivePIDConfig),
+            new SwerveMotorConfig(new NAR_TalonFX(6, CANBUS), angleMotorConfig, anglePIDConfig),
+            new SwerveEncoderConfig(new CANcoder(13, CANBUS), -84.287109375, canCoderInvert),
             maxSpeed);
         
         public static final SwerveModuleConfig Mod3 = new SwerveModuleConfig(
             3, 
-            new SwerveMotorConfig(new NAR_TalonFX(7, "Drivetrain"), driveMotorConfig, drivePIDConfig),
-            new SwerveMotorConfig(new NAR_TalonFX(8, "Drivetrain"), angleMotorConfig, anglePIDConfig),
-            new SwerveEncoderConfig(new CANcoder(14, "Drivetrain"), 167.607421875, canCoderInvert),
+            new SwerveMotorConfig(new NAR_TalonFX(7, CANBUS), driveMotorConfig, drivePIDConfig),
+            new SwerveMotorConfig(new NAR_TalonFX(8, CANBUS), angleMotorConfig, anglePIDConfig),
+            new SwerveEncoderConfig(new CANcoder(14, CANBUS), 167.607421875, canCoderInvert),
             maxSpeed);
 
         public static final double turnkP = 5;
@@ -187,11 +217,19 @@ public class Constants {
     public static class VisionConstants {
 
         public static final double POSE_THRESH = 100;
+        // vision poses further than this from where odometry was at capture time are rejected, two measurement std devs
+        public static final double VISION_REJECT_DISTANCE = 1.0;
+        // after this many rejections in a row odometry is the one that is off, like after a collision, so vision is taken again
+        public static final int VISION_REJECT_LIMIT = 10;
 
         public static final Matrix<N3,N1> SVR_STATE_STD = VecBuilder.fill(0.1,0.1,Units.degreesToRadians(3));
  
         public static final Matrix<N3,N1> SVR_VISION_MEASUREMENT_STD = VecBuilder.fill(0.5,0.5,Units.degreesToRadians(5));
 
+        public static final double VISION_PERIOD = 0.01;
+        public static final int VISION_QUEUE_CAPACITY = 64;
+        public static final int MAX_MEASUREMENTS_PER_LOOP = 8;
+
     }
     
     public static class FieldConstants{
@@ -243,6 +281,11 @@ public class Constants {
 
         public static final double speakerLength = 1.043;
         public static final double speakerMidpointY = Units.inchesToMeters(218.29); //5.4;
+
+        // Moving shot solver
+        public static final int SOLVER_MAX_ITERATIONS = 5;
+        public static final double SOLVER_TOLERANCE = 0.01;
+        public static final double SOLVER_STALE_TIME = 0.01;
         
          //6.151 - speakerLength / 2;
         // public static final double focalPointX = 0.1; //0.229; //1.4583577128;
@@ -296,6 +339,21 @@ public class Constants {
         public static final double SHOOTER_RPM = 4500;
         public static final double SOURCE_RPM = 2000;
 
+        // Distance indexed speaker shots, columns are rpm and note time of flight
+        public static final String SHOT_TABLE_FILE = "shooter/shot_table.csv";
+        public static final int SHOT_RPM = 0;
+        public static final int SHOT_TIME_OF_FLIGHT = 1;
+        public static final double DEFAULT_TIME_OF_FLIGHT = 0.3;
+        public static final InterpolatingTable SHOT_TABLE = InterpolatingTable.fromDeploy(SHOT_TABLE_FILE, 0, SHOOTER_RPM, DEFAULT_TIME_OF_FLIGHT);
+
+        // Pre-arming the flywheel when a shot is likely
+        public static final double PREARM_FRACTION = 0.6;
+        public static final double PREARM_DISTANCE = 3.5;
+        public static final double PREARM_CLOSING_SPEED = 1.0;
+        public static final double PREARM_MIN_VOLTAGE = 11.5;
+        public static final double PREARM_DEBOUNCE = 0.1;
+        public static final double PREARM_HANDOFF_WINDOW = 0.02; // a shot this soon after pre-arm was interrupted counts as pre-armed
+
         public static final double AMP_RPM = 2500;
         public static final double AMP_ANGLE = 90;
         public static final double EDGE_FEED_RPM = 5000;
@@ -305,6 +363,7 @@ public class Constants {
         
         public static final double INTAKE_POWER = 0.4;
         public static final double KICK_POWER = 0.2;
+        public static final double KICK_RECIEVE_POWER = 0.8;
     }
 
     public static class IntakeConstants {
@@ -334,13 +393,29 @@ public class Constants {
         public static final double ROLLER_VOLT_COMP = 9;
 
         // Controller Constants
-        public static final PIDFFConfig PIDConstants = new PIDFFConfig(0.1, 0, 0, 0.2, 0, 0, 0.3625);
+        public static final double PIVT_kP = 0.1;
+        public static final double PIVT_kS = 0.2;
+        public static final double PIVT_kG = 0.3625;
+        public static final PIDFFConfig PIDConstants = new PIDFFConfig(PIVT_kP, 0, 0, PIVT_kS, 0, 0, PIVT_kG);
+        // left unconstrained, the setpoint is profiled by the intake
         public static final double MAX_VELOCTIY = 10000000;
         public static final double MAX_ACCELERATION = 100000;
         public static final Constraints TRAP_CONSTRAINTS = new Constraints(MAX_VELOCTIY, MAX_ACCELERATION);
         public static final TrapController CONTROLLER = new TrapController(PIDConstants, TRAP_CONSTRAINTS);
         public static final double POSITION_TOLERANCE = 0.25;
 
+        // Profile Constants, degrees and seconds
+        public static final double PROFILE_MAX_VELOCITY = 500;
+        public static final double PROFILE_MAX_ACCELERATION = 3000;
+        public static final double PROFILE_MAX_JERK = 30000;
+        public static final DCMotor PIVT_GEARBOX = DCMotor.getNEO(1);
+        public static final double PIVT_MOI = 0.1; // kilogram meters squared at the pivot, estimated from CAD
+        // volts per degree per second and per degree per second squared, from the NEO through the gear ratio
+        public static final double PIVT_kV = Units.degreesToRadians(1) / (PIVT_GEARBOX.KvRadPerSecPerVolt * PIVT_GEAR_RATIO);
+        public static final double PIVT_kA = Units.degreesToRadians(1) * PIVT_MOI * PIVT_GEARBOX.rOhms * PIVT_GEAR_RATIO / PIVT_GEARBOX.KtNMPerAmp;
+        // rollers are started this long before the pivot is predicted to arrive
+        public static final double ROLLER_SPINUP_TIME = 0.1;
+
         // Functional Constants
         public static final double OUTTAKE_POWER = -0.3;
         public static final double INTAKE_POWER = 0.7 / 0.75;
@@ -452,6 +527,7 @@ public class Constants {
         public static final double HPPR_INTAKE_POWER = 0.5;
         public static final double HPPR_OUTTAKE_POWER = -0.5;
         public static final double HPPR_STALL_POWER = 0.05;
+        public static final double HPPR_ADVANCE_POWER = 1.0; // the shooter beam stops the handoff on its first blocked sample
     }
 
     public static class AmperConstants {
@@ -482,25 +558,119 @@ public class Constants {
         public static final Neutral ROLLER_NEUTRAL_MODE = Neutral.COAST;
 
         // Controller Constants
-        public static final PIDFFConfig PIDConstants = new PIDFFConfig(0.75, 0, 0, 0.21115, 0.00182, 0.00182, 0.0);
+        public static final double ELEV_kP = 0.75;
+        public static final double ELEV_kS = 0.21115;
+        public static final double ELEV_kV = 0.00182;
+        public static final double ELEV_kA = 0.00182;
+        public static final double ELEV_kG = 0.0;
+        public static final PIDFFConfig PIDConstants = new PIDFFConfig(ELEV_kP, 0, 0, ELEV_kS, ELEV_kV, ELEV_kA, ELEV_kG);
         public static final double MAX_VELOCTIY = 10000000;
         public static final double MAX_ACCELERATION = 100000;
         public static final Constraints TRAP_CONSTRAINTS = new Constraints(MAX_VELOCTIY, MAX_ACCELERATION);
         public static final TrapController CONTROLLER = new TrapController(PIDConstants, TRAP_CONSTRAINTS);
         public static final double POSITION_TOLERANCE = 0.25;
 
+        // Arrival Prediction Constants
+        // the Spark reports velocity in position units per minute and kV, kA were characterized against it, the
+        // predictor works per second
+        public static final double ELEV_VELOCITY_PER_SECOND = 1.0 / 60;
+        public static final double ARRIVAL_kV = ELEV_kV / ELEV_VELOCITY_PER_SECOND;
+        public static final double ARRIVAL_kA = ELEV_kA / ELEV_VELOCITY_PER_SECOND;
+        // free speed, where the battery only overcomes kS, kG and kV, about 108 cm per second
+        public static final double ELEV_MAX_VELOCITY = (12 - ELEV_kS - ELEV_kG) / ARRIVAL_kV; // position units per second
+        public static final double ARRIVAL_PERIOD = 0.02;
+        public static final double ARRIVAL_HORIZON = 2;
+        // rollers are started this long before the elevator is predicted to arrive
+        public static final double ROLLER_SPINUP_TIME = 0.1;
+
         public static final double ROLLER_POWER = 0.5;
         public static final double ROLLER_STALL_THRESHOLD = 50;
 
     }
 
+    public static class SuperstructureConstants {
+        public static final double AMP_EMPTY_DEBOUNCE = 0.25; // account for hopper to shooter transition
+        public static final int MAX_QUEUED_NOTES = 2;
+        public static final double EDGE_MATCH_WINDOW = 0.1; // how far back a beam break interrupt still explains a flag change
+        public static final double AMP_LEAD_TIME = 0.1; // kicker to amp rollers, the note is fed this long before the elevator arrives
+    }
+
+    public static class NoteTrackingConstants {
+        public static final double BEAM_DEBOUNCE = 0.06; // unexpected beam break edges must hold this long
+        public static final double AMP_STALL_DEBOUNCE = 0.1;
+        public static final double INTAKE_DEPLOYED_ANGLE = 15;
+        // a note dragging the hopper NEO to half its free speed at intake power draws half its stall current there,
+        // about 20 A, against under 2 A running free
+        public static final double HOPPER_NOTE_CURRENT = DCMotor.getNEO(1).stallCurrentAmps / DCMotor.getNEO(1).nominalVoltageVolts
+            * HopperConstants.HPPR_INTAKE_POWER * HopperConstants.HPPR_VOLT_COMP / 2;
+        public static final double HANDOFF_TIMEOUT = 1.0;
+    }
+
+    public static class SimConstants {
+        public static final double SIM_PERIOD = 0.02;
+        public static final String SIM_OUTPUT_DIRECTORY = "build/sim";
+
+        public static final int DRIVE_SUBSTEPS = 10;
+        public static final double AUTO_LENGTH = 15;
+        public static final DCMotor DRIVE_MOTOR = DCMotor.getKrakenX60(1);
+        public static final double ROBOT_MASS = 60; // kilograms, with bumpers and battery
+        public static final double ROBOT_MOI = 6; // kilogram meters squared
+        public static final double DRIVE_REFLECTED_MASS = 0.5; // rotor and wheel inertia seen at the tread, kilograms
+        public static final double WHEEL_COF = 1.1;
+        public static final double WHEEL_KINETIC_COF = 0.9;
+        public static final double WHEEL_REGRIP_SPEED = 0.05;
+        public static final double STEER_TIME_CONSTANT = 0.02;
+        public static final double STEER_MAX_RATE = 1500; // degrees per second
+        public static final double FLYWHEEL_TIME_CONSTANT = 0.4;
+        public static final double FLYWHEEL_MAX_ACCELERATION = 8000; // rpm per second
+        public static final int PIVOT_SUBSTEPS = 10;
+        public static final double ELEVATOR_TIME_CONSTANT = 0.08;
+        // NEO free speed through the elevator gearing, independent of the characterized gains the predictor uses
+        public static final double ELEVATOR_MAX_RATE = Units.radiansPerSecondToRotationsPerMinute(DCMotor.getNEO(1).freeSpeedRadPerSec)
+            * AmperConstants.UNIT_CONV_FACTOR / 60; // cm per second
+
+        public static final double ROLLER_THRESHOLD = 0.1;
+        public static final double INTAKE_DEPLOYED_TOLERANCE = 10;
+        public static final double NOTE_TRANSFER_TIME = 0.15;
+        public static final double NOTE_EXIT_TIME = 0.1;
+        public static final double NOTE_EXIT_RPM = 1000;
+        public static final double NOTE_PICKUP_RADIUS = 0.45;
+        // blue wing, centerline and red wing notes
+        public static final Translation2d[] FIELD_NOTES = {
+            new Translation2d(2.8956, 4.1021), new Translation2d(2.8956, 5.5483), new Translation2d(2.8956, 6.9955),
+            new Translation2d(8.2706, 0.7529), new Translation2d(8.2706, 2.4293), new Translation2d(8.2706, 4.1057),
+            new Translation2d(8.2706, 5.7821), new Translation2d(8.2706, 7.4585),
+            new Translation2d(13.6454, 4.1021), new Translation2d(13.6454, 5.5483), new Translation2d(13.6454, 6.9955)
+        };
+    }
+
     public static class Flags {
-        public static final BooleanSupplier shooterHasNote = ()-> Shooter.getInstance().hasObjectPresent();
-        public static final BooleanSupplier hopperHasNote = ()-> Hopper.getInstance().hasObjectPresent();
-        public static final BooleanSupplier amperHasStalled = ()-> Amper.getInstance().rollerHasStaller();
-        public static final BooleanSupplier hasTwoNotes = ()-> shooterHasNote.getAsBoolean() && hopperHasNote.getAsBoolean();
-        public static final BooleanSupplier hasNoNotes = ()-> !shooterHasNote.getAsBoolean() && !hopperHasNote.getAsBoolean();
-        public static final BooleanSupplier noteAdvanceRequired = ()-> hopperHasNote.getAsBoolean() && !shooterHasNote.getAsBoolean();
+        private static final SensorSnapshot snapshot = SensorSnapshot.getInstance();
+        public static final int SHOOTER_SENSOR = snapshot.register("Shooter Beam Break", ShooterConstants.SHTR_SENSOR);
+        public static final int HOPPER_SENSOR = snapshot.register("Hopper Beam Break", HopperConstants.HPPR_SENSOR);
+        public static final int AMPER_ROLLER_CURRENT = snapshot.register("Amper Roller Current", ()-> AmperConstants.ROLLER_MOTOR.getStallCurrent());
+        public static final int INTAKE_ANGLE = snapshot.register("Intake Angle", ()-> Intake.getInstance().getMeasurement());
+        public static final int HOPPER_CURRENT = snapshot.register("Hopper Current", ()-> HopperConstants.HPPR_MOTOR.getStallCurrent());
+
+        // set by NoteEstimator from the inputs above
+        public static final int SHOOTER_NOTE = snapshot.register("Shooter Note");
+        public static final int HOPPER_NOTE = snapshot.register("Hopper Note");
+        public static final int AMPER_STALLED = snapshot.register("Amper Stalled");
+
+        public static final Condition shooterHasNote = snapshot.condition(()-> snapshot.getBoolean(SHOOTER_NOTE), SHOOTER_NOTE);
+        public static final Condition hopperHasNote = snapshot.condition(()-> snapshot.getBoolean(HOPPER_NOTE), HOPPER_NOTE);
+        public static final Condition amperHasStalled = snapshot.condition(()-> snapshot.getBoolean(AMPER_STALLED), AMPER_STALLED);
+        public static final Condition hasTwoNotes = shooterHasNote.and(hopperHasNote);
+        public static final Condition hasNoNotes = shooterHasNote.negate().and(hopperHasNote.negate());
+        public static final Condition noteAdvanceRequired = hopperHasNote.and(shooterHasNote.negate());
+
+        public static Condition not(Condition condition) {
+            return condition.negate();
+        }
+
+        public static Condition and(Condition condition1, Condition condition2) {
+            return condition1.and(condition2);
+        }
 
         public static BooleanSupplier not(BooleanSupplier supplier) {
             return ()-> !supplier.getAsBoolean();
@@ -25,7 +25,18 @@ import frc.team3128.autonomous.AutoPrograms;
 import frc.team3128.commands.CmdManager;
 import frc.team3128.subsystems.Hopper;
 import frc.team3128.subsystems.Leds;
+import frc.team3128.subsystems.Superstructure;
 import frc.team3128.subsystems.Swerve;
+import frc.team3128.util.BeamBreakInterrupts;
+import frc.team3128.util.CommandAllocationMonitor;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MatchLogger;
+import frc.team3128.util.MotorOutputs;
+import frc.team3128.util.NoteEstimator;
+import frc.team3128.util.SensorSnapshot;
+import frc.team3128.util.StartupOrchestrator;
+import frc.team3128.util.TelemetryPublisher;
+import frc.team3128.util.VisionPipeline;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -34,8 +45,21 @@ import frc.team3128.subsystems.Swerve;
 public class Robot extends NAR_Robot {
     private Timer timer = new Timer();
 
+    private static final LoopProfiler profiler = LoopProfiler.getInstance();
+    private static final int VISION_PHASE = profiler.register("Vision.update");
+    private static final int SCHEDULER_PHASE = profiler.register("Scheduler.run", true);
+    private static final int TELEMETRY_PHASE = profiler.register("Telemetry.update");
+    private static final int DASHBOARD_PHASE = profiler.register("Dashboard");
+    private static final int OUTPUTS_PHASE = profiler.register("MotorOutputs.flush");
+
     private boolean hasInitialized = false;
     private int notePlateuCount = 0;
+    private Command m_autonomousCommand;
+    // built once, disabledInit runs every time the robot is disabled
+    private final Command releaseBrakes = sequence(
+        waitSeconds(3.0),
+        runOnce(()->Swerve.getInstance().setBrakeMode(false))
+    ).ignoringDisable(true);
 
     public static Alliance alliance;
 
@@ -65,8 +89,14 @@ public class Robot extends NAR_Robot {
         
 
         autoPrograms = new AutoPrograms();
+        StartupOrchestrator.mark("Autos");
         m_robotContainer.initDashboard();
+        if (isReal()) m_robotContainer.initMatchLogger();
         LiveWindow.disableAllTelemetry();
+        CommandScheduler.getInstance().onCommandExecute(profiler::markCommandExecute);
+        CommandScheduler.getInstance().onCommandInitialize(CommandAllocationMonitor.getInstance()::markInitialize);
+        VisionPipeline.getInstance().start();
+        StartupOrchestrator.publish();
         // runOnce(()-> Swerve.getInstance().zeroGyro(Robot.getAlliance() == Alliance.Red ? 0 : 180));
         // Swerve.getInstance().resetOdometry((new Pose2d(new Translation2d(1.45, 4.1), Rotation2d.fromDegrees(180)))); //1.45, 4.1
         // Alliance allianceTemp = getAlliance();
@@ -99,9 +129,49 @@ public class Robot extends NAR_Robot {
         Logger.start();
     }
 
+    @Override
+    protected void loopFunc() {
+        profiler.beginCycle();
+        // sensors are read once here, every flag and trigger this loop sees the same values
+        SensorSnapshot.getInstance().sample();
+        BeamBreakInterrupts.getInstance().update();
+        NoteEstimator.getInstance().update();
+        super.loopFunc();
+        profiler.endCycle();
+        MatchLogger.getInstance().record();
+    }
+
+    /**
+     * Runs a single loop, lets the headless simulation step the robot faster than real time.
+     */
+    public void step() {
+        loopFunc();
+    }
+
+    /**
+     * @return The auto scheduled in the last autonomousInit, or null if there was none.
+     */
+    public Command getAutonomousCommand() {
+        return m_autonomousCommand;
+    }
+
+    private void runScheduler() {
+        profiler.start(SCHEDULER_PHASE);
+        CommandScheduler.getInstance().run();
+        profiler.stop(SCHEDULER_PHASE);
+
+        profiler.start(OUTPUTS_PHASE);
+        MotorOutputs.getInstance().flush();
+        profiler.stop(OUTPUTS_PHASE);
+
+        CommandAllocationMonitor.getInstance().update();
+    }
+
     @Override
     public void robotPeriodic(){
-        Camera.updateAll();
+        profiler.start(VISION_PHASE);
+        VisionPipeline.getInstance().update(Swerve.getInstance());
+        profiler.stop(VISION_PHASE);
         // TODO: this may break everything
         // if (Hopper.getInstance().hasObjectPresent()) {
         //     if (timer.hasElapsed(2.5)) {
@@ -112,6 +182,13 @@ public class Robot extends NAR_Robot {
         //     return;
         // } 
         // timer.reset();
+
+        profiler.start(TELEMETRY_PHASE);
+        TelemetryPublisher.getInstance().update();
+        profiler.stop(TELEMETRY_PHASE);
+
+        // SmartDashboard, LiveWindow and Shuffleboard are flushed by the base class after robotPeriodic
+        profiler.start(DASHBOARD_PHASE);
     }
 
     @Override
@@ -120,7 +197,7 @@ public class Robot extends NAR_Robot {
         Camera.overrideThreshold = 0;
         Camera.validDist = 30;
         Leds.getInstance().setDefaultColor();
-        Command m_autonomousCommand = autoPrograms.getAutonomousCommand();
+        m_autonomousCommand = autoPrograms.getAutonomousCommand();
         if (m_autonomousCommand != null) {
             m_autonomousCommand.schedule();
         }
@@ -128,7 +205,7 @@ public class Robot extends NAR_Robot {
 
     @Override
     public void autonomousPeriodic() {
-        CommandScheduler.getInstance().run();
+        runScheduler();
     }
 
     @Override
@@ -141,7 +218,7 @@ public class Robot extends NAR_Robot {
 
     @Override
     public void teleopPeriodic() {
-        CommandScheduler.getInstance().run();
+        runScheduler();
     }
 
     @Override
@@ -151,26 +228,26 @@ public class Robot extends NAR_Robot {
 
     @Override
     public void simulationPeriodic() {
-        CommandScheduler.getInstance().run();
+        profiler.stop(DASHBOARD_PHASE);
+        runScheduler();
     }
 
     @Override
     public void disabledInit() {
         Swerve.getInstance().setBrakeMode(true);
         CommandScheduler.getInstance().cancelAll();
-        sequence(
-            waitSeconds(3.0).ignoringDisable(true),
-            runOnce(()->Swerve.getInstance().setBrakeMode(false)).ignoringDisable(true)
-        ).schedule();
+        releaseBrakes.schedule();
 
         if (hasInitialized) {
             Leds.getInstance().setLedColor(Colors.AMP);
+            Superstructure.getInstance().logTransitionTimes();
         }
         hasInitialized = true;
     }
 
     @Override
     public void disabledExit() {
+        MotorOutputs.getInstance().invalidate();
         Leds.getInstance().setDefaultColor();
         Swerve.getInstance().setBrakeMode(true);
 
@@ -179,6 +256,7 @@ public class Robot extends NAR_Robot {
     
     @Override
     public void disabledPeriodic() {
-        CommandScheduler.getInstance().run();
+        autoPrograms.update();
+        runScheduler();
     }
 }
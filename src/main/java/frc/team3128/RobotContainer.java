@@ -16,7 +16,14 @@ import static frc.team3128.commands.CmdManager.*;
 
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
 
+import frc.team3128.Constants.AmperConstants;
+import frc.team3128.Constants.Flags;
+import frc.team3128.Constants.HopperConstants;
+import frc.team3128.Constants.IntakeConstants;
 import frc.team3128.Constants.LedConstants.Colors;
+import frc.team3128.Constants.ShooterConstants;
+import frc.team3128.Constants.SwerveConstants;
+import frc.team3128.commands.CmdMovingShot;
 import frc.team3128.commands.CmdSwerveDrive;
 import common.core.swerve.SwerveModule;
 import common.hardware.camera.Camera;
@@ -40,7 +47,21 @@ import frc.team3128.subsystems.Intake;
 // import common.utility.tester.Tester.UnitTest;
 import frc.team3128.subsystems.Leds;
 import frc.team3128.subsystems.Shooter;
+import frc.team3128.subsystems.Superstructure;
+import frc.team3128.subsystems.Superstructure.NoteState;
+import frc.team3128.subsystems.Superstructure.Request;
 import frc.team3128.subsystems.Swerve;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MatchLogger;
+import frc.team3128.util.MotorOutputs;
+import frc.team3128.util.NoteEstimator;
+import frc.team3128.util.NoteEstimator.NotePosition;
+import frc.team3128.util.OdometryThread;
+import frc.team3128.util.SensorSnapshot;
+import frc.team3128.util.StartupOrchestrator;
+import frc.team3128.util.TelemetryPublisher;
+import frc.team3128.util.TelemetryPublisher.Tier;
+import frc.team3128.util.VisionPipeline;
 
 import frc.team3128.subsystems.Amper.AmpState;
 import frc.team3128.subsystems.Hopper.HopperState;
@@ -48,6 +69,7 @@ import frc.team3128.subsystems.Intake.IntakeState;
 import frc.team3128.subsystems.Shooter.ShooterState;
 
 import java.util.ArrayList;
+import java.util.function.DoubleSupplier;
 import edu.wpi.first.apriltag.AprilTagFields;
 
 /**
@@ -65,6 +87,7 @@ public class RobotContainer {
     public static Intake intake;
     public static Hopper hopper;
     public Shooter shooter;
+    public static Superstructure superstructure;
 
     private NAR_ButtonBoard buttonPad;
 
@@ -81,14 +104,27 @@ public class RobotContainer {
         NAR_TalonFX.maximumRetries = 1;
 
         NAR_Shuffleboard.WINDOW_WIDTH = 10;
+        StartupOrchestrator.mark("Robot static init");
+
+        // construct and configure the motors in Constants concurrently, the subsystems below then find them ready
+        StartupOrchestrator.initInParallel(StartupOrchestrator.PARALLEL_INIT_TIMEOUT,
+            SwerveConstants.class, ShooterConstants.class, IntakeConstants.class, HopperConstants.class, AmperConstants.class);
+        StartupOrchestrator.mark("Device constants");
 
         amper = Amper.getInstance();
+        StartupOrchestrator.mark("Amper");
         // climber = Climber.getInstance();
         intake = Intake.getInstance();
+        StartupOrchestrator.mark("Intake");
         hopper = Hopper.getInstance();
-        shooter = Shooter.getInstance();
+        StartupOrchestrator.mark("Hopper");
         swerve = Swerve.getInstance();
+        StartupOrchestrator.mark("Swerve");
+        shooter = Shooter.getInstance();
+        StartupOrchestrator.mark("Shooter");
         leds = Leds.getInstance();
+        StartupOrchestrator.mark("Leds");
+        superstructure = Superstructure.getInstance();
 
         controller = new NAR_XboxController(2);
         buttonPad = new NAR_ButtonBoard(3);
@@ -100,17 +136,17 @@ public class RobotContainer {
         DriverStation.silenceJoystickConnectionWarning(true);
         initCameras();
 
+        StartupOrchestrator.mark("Cameras");
+
         initTriggers();
         configureButtonBindings();
+        StartupOrchestrator.mark("Triggers");
 
         // NAR_Shuffleboard.addData("Limelight", "ValidTarget", ()-> limelight.hasValidTarget(), 0, 0);
         // NAR_Shuffleboard.addData("Limelight", "TX", ()-> limelight.getValue(LimelightKey.HORIZONTAL_OFFSET), 0, 1);
     }
     
     private void initTriggers(){
-        amper.configTriggers();
-        intake.configTriggers();
-        hopper.configTriggers();
         shooter.configTriggers();
     }
 
@@ -131,40 +167,27 @@ public class RobotContainer {
             CmdSwerveDrive.setTurnSetpoint(Robot.getAlliance() == Alliance.Red ? 270 : 90);
         }));
 
-        controller.getButton(XboxButton.kLeftBumper).onTrue(intake.setState(IntakeState.INTAKE));
-        controller.getButton(XboxButton.kRightBumper).onTrue(intake.setState(IntakeState.RETRACTED));
+        controller.getButton(XboxButton.kLeftBumper).onTrue(superstructure.request(Request.INTAKE));
+        controller.getButton(XboxButton.kRightBumper).onTrue(superstructure.request(Request.RETRACT));
 
         controller.getButton(XboxButton.kA).onTrue(shooter.runShooter(0.8));
         controller.getButton(XboxButton.kY).onTrue(shooter.runShooter(0));
         controller.getButton(XboxButton.kB).onTrue(shooter.runKickMotor(0.8)).onFalse(shooter.runKickMotor(0));
 
-        controller.getButton(XboxButton.kY).whileTrue(amper.setState(AmpState.PRIMED)).onFalse(amper.setState(AmpState.AMP));
+        controller.getButton(XboxButton.kY).onTrue(superstructure.request(Request.PRIME_AMP)).onFalse(superstructure.request(Request.AMP));
 
+        controller.getButton(XboxButton.kX).whileTrue(new CmdMovingShot(controller::getLeftX, controller::getLeftY));
 
-        // new Trigger(()->true).onTrue(queueNote());
 
-        new Trigger(()-> intake.getMeasurement() > 90)
-        .and(()-> !hopper.hasObjectPresent())
-        .onTrue(hopper.runManipulator(0.8))
-        .onFalse(hopper.runManipulator(0));
-
-        new Trigger(()-> shooter.hasObjectPresent()).negate()
-        .and(()-> hopper.hasObjectPresent())
-        .onTrue(sequence(
-            shooter.runKickMotor(0.8),
-            Hopper.getInstance().runManipulator(0.8)
-        ))
-        .onFalse(sequence(
-            shooter.runKickMotor(0),
-            Hopper.getInstance().runManipulator(0)
-        ));
+        // new Trigger(()->true).onTrue(queueNote());
 
     }
 
     @SuppressWarnings("unused")
     public void initCameras() {
         Camera.disableAll();
-        Camera.setResources(()-> swerve.getYaw(),  (pose, time) -> swerve.addVisionMeasurement(pose, time), AprilTagFields.k2024Crescendo.loadAprilTagLayoutField(), () -> swerve.getPose());
+        final VisionPipeline vision = VisionPipeline.getInstance();
+        Camera.setResources(()-> vision.getYaw(), (pose, time) -> vision.addMeasurement(pose, time), AprilTagFields.k2024Crescendo.loadAprilTagLayoutField(), () -> vision.getPose());
         Camera.setThresholds(5, 0.5);
         // Camera.overrideThreshold = 30;
         // Camera.validDist = 0.5;
@@ -185,13 +208,75 @@ public class RobotContainer {
         // limelight = new Limelight("limelight-mason", 0, 0, 0);
     }
 
+    /**
+     * Registers the match log columns and starts logging, call once every subsystem exists.
+     */
+    public void initMatchLogger() {
+        final MatchLogger logger = MatchLogger.getInstance();
+        final OdometryThread odometry = swerve.getOdometry();
+        logger.addNumber("Swerve/X", ()-> swerve.getPose().getX());
+        logger.addNumber("Swerve/Y", ()-> swerve.getPose().getY());
+        logger.addNumber("Swerve/Heading", ()-> swerve.getPose().getRotation().getDegrees());
+        for (int i = 0; i < 4; i++) {
+            final int module = i;
+            logger.addNumber("Swerve/Module" + module + "/Speed", ()-> odometry.getModuleSpeed(module));
+            logger.addNumber("Swerve/Module" + module + "/Angle", ()-> odometry.getModuleAngle(module));
+        }
+
+        logger.addNumber("Shooter/Setpoint", ()-> shooter.getSetpoint());
+        logger.addNumber("Shooter/Measurement", ()-> shooter.getMeasurement());
+        logger.addNumber("Intake/Setpoint", ()-> intake.getSetpoint());
+        logger.addNumber("Intake/Measurement", ()-> intake.getMeasurement());
+        logger.addNumber("Amper/Setpoint", ()-> amper.getSetpoint());
+        logger.addNumber("Amper/Measurement", ()-> amper.getMeasurement());
+        logger.addNumber("Amper/Time To Setpoint", ()-> amper.getTimeToSetpoint());
+        final MotorOutputs outputs = MotorOutputs.getInstance();
+        for (int i = 0; i < outputs.getNumChannels(); i++) {
+            final int channel = i;
+            logger.addNumber("Outputs/" + outputs.getName(channel), ()-> outputs.getLastSent(channel));
+        }
+
+        final SensorSnapshot snapshot = SensorSnapshot.getInstance();
+        for (int i = 0; i < snapshot.getNumInputs(); i++) {
+            final int input = i;
+            logger.addNumber("Sensors/" + snapshot.getName(input), ()-> snapshot.get(input));
+        }
+        logger.addBoolean("Flags/ShooterHasNote", Flags.shooterHasNote);
+        logger.addBoolean("Flags/HopperHasNote", Flags.hopperHasNote);
+        logger.addBoolean("Flags/AmperHasStalled", Flags.amperHasStalled);
+        final NoteEstimator notes = NoteEstimator.getInstance();
+        logger.addEnum("Notes/Front", NotePosition.class, ()-> notes.getNote(0));
+        logger.addEnum("Notes/Back", NotePosition.class, ()-> notes.getNote(1));
+
+        logger.addEnum("States/Superstructure", NoteState.class, ()-> superstructure.getState());
+        logger.addEnum("States/Intake", IntakeState.class, Intake::getGoalState);
+        logger.addEnum("States/Hopper", HopperState.class, Hopper::getGoalState);
+        logger.addEnum("States/Shooter", ShooterState.class, Shooter::getGoalState);
+        logger.addEnum("States/Amper", AmpState.class, Amper::getGoalState);
+
+        final LoopProfiler profiler = LoopProfiler.getInstance();
+        for (int i = 0; i < profiler.getNumPhases(); i++) {
+            final int phase = i;
+            logger.addNumber("LoopTimes/" + profiler.getName(phase), ()-> profiler.getLastTime(phase));
+        }
+        logger.addNumber("LoopTimes/Overruns", ()-> profiler.getOverruns());
+        logger.start();
+    }
+
     public void initDashboard() {
         dashboard = NarwhalDashboard.getInstance();
-        dashboard.addUpdate("time", ()-> Timer.getMatchTime());
-        dashboard.addUpdate("voltage",()-> RobotController.getBatteryVoltage());
-        dashboard.addUpdate("robotX", ()-> swerve.getPose().getX());
-        dashboard.addUpdate("robotY", ()-> swerve.getPose().getY());
-        dashboard.addUpdate("robotYaw", ()-> swerve.getPose().getRotation().getDegrees());
+        // the dashboard polls these on its own, they only read the telemetry publisher's last sample
+        final TelemetryPublisher telemetry = TelemetryPublisher.getInstance();
+        final DoubleSupplier time = telemetry.sampled(()-> Timer.getMatchTime(), Tier.SLOW);
+        final DoubleSupplier voltage = telemetry.sampled(()-> RobotController.getBatteryVoltage(), Tier.SLOW);
+        final DoubleSupplier robotX = telemetry.sampled(()-> swerve.getPose().getX(), Tier.MEDIUM);
+        final DoubleSupplier robotY = telemetry.sampled(()-> swerve.getPose().getY(), Tier.MEDIUM);
+        final DoubleSupplier robotYaw = telemetry.sampled(()-> swerve.getPose().getRotation().getDegrees(), Tier.MEDIUM);
+        dashboard.addUpdate("time", ()-> time.getAsDouble());
+        dashboard.addUpdate("voltage",()-> voltage.getAsDouble());
+        dashboard.addUpdate("robotX", ()-> robotX.getAsDouble());
+        dashboard.addUpdate("robotY", ()-> robotY.getAsDouble());
+        dashboard.addUpdate("robotYaw", ()-> robotYaw.getAsDouble());
 
         if (NAR_TalonFX.getNumFailedConfigs() + NAR_CANSpark.getNumFailedConfigs() > 0 || !isConnected()) {
             Log.recoverable("Colors", "Errors configuring: " + NAR_CANSpark.getNumFailedConfigs() + NAR_TalonFX.getNumFailedConfigs());
@@ -0,0 +1,179 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import common.utility.Log;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
+
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Loads every auto in the deploy directory in the background while disabled.
+ * <p>
+ * A worker thread maps each {@link CompiledAuto} and the {@link CompiledTrajectory} of every path it follows, which
+ * hold the trajectories generated for both alliances at build time, and samples them so the code is JIT-warm before
+ * autonomous starts. Commands are built on the main thread, one per loop, since composing commands registers them with
+ * the scheduler. An auto that was not compiled falls back to {@code PathPlannerAuto}.
+ */
+public class AutoCache {
+
+    private static final String AUTO_EXTENSION = ".auto";
+
+    private final String[] autoNames;
+
+    private final ConcurrentHashMap<String, CompiledAuto> autos = new ConcurrentHashMap<String, CompiledAuto>();
+    private final ConcurrentHashMap<String, CompiledTrajectory> trajectories = new ConcurrentHashMap<String, CompiledTrajectory>();
+    private final ConcurrentLinkedQueue<String> parsed = new ConcurrentLinkedQueue<String>();
+
+    private final HashMap<String, Command> commands = new HashMap<String, Command>();
+    private Command selected;
+    private String selectedName;
+
+    private Thread worker;
+
+    public AutoCache() {
+        autoNames = listAutos();
+    }
+
+    private static String[] listAutos() {
+        final File[] files = new File(Filesystem.getDeployDirectory(), AUTO_DIRECTORY).listFiles();
+        if (files == null) {
+            Log.recoverable("AutoCache", "No autos found in " + AUTO_DIRECTORY);
+            return new String[0];
+        }
+        return Arrays.stream(files)
+            .map(File::getName)
+            .filter(name -> name.endsWith(AUTO_EXTENSION))
+            .map(name -> name.substring(0, name.length() - AUTO_EXTENSION.length()))
+            .sorted()
+            .toArray(String[]::new);
+    }
+
+    public String[] getAutoNames() {
+        return autoNames;
+    }
+
+    /**
+     * Starts loading autos on a low priority worker thread, does nothing if already started.
+     */
+    public synchronized void start() {
+        if (worker != null) return;
+        worker = new Thread(this::loadAll, "AutoCache");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    private void loadAll() {
+        final long startTime = System.nanoTime();
+        final double[] state = new double[CompiledTrajectory.STATE_SIZE];
+        for (final String name : autoNames) {
+            // stay off the cpu while the robot is running, autos are only needed once it is disabled again
+            while (DriverStation.isEnabled()) {
+                try {
+                    Thread.sleep(AUTO_CACHE_ENABLED_SLEEP);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                warm(load(name), state);
+            } catch (IOException | RuntimeException e) {
+                Log.recoverable("AutoCache", "Failed to load compiled " + name + ": " + e.getMessage());
+            }
+            parsed.add(name);
+        }
+        Log.info("AutoCache", "Loaded " + autos.size() + " compiled autos in " + (System.nanoTime() - startTime) / 1e6 + " ms");
+    }
+
+    /**
+     * Maps a compiled auto and the trajectories it follows into the cache.
+     */
+    private CompiledAuto load(String name) throws IOException {
+        final CompiledAuto auto = CompiledAuto.load(name);
+        for (int i = 0; i < auto.getStepCount(); i++) {
+            if (auto.getStepType(i) != CompiledAuto.STEP_PATH) continue;
+            final String path = auto.getStepName(i);
+            if (!trajectories.containsKey(path)) trajectories.put(path, CompiledTrajectory.load(path));
+        }
+        autos.put(name, auto);
+        return auto;
+    }
+
+    /**
+     * Samples an auto's trajectories for both alliances, only to get the sampling code compiled.
+     */
+    private void warm(CompiledAuto auto, double[] state) {
+        for (int i = 0; i < auto.getStepCount(); i++) {
+            if (auto.getStepType(i) != CompiledAuto.STEP_PATH) continue;
+            final CompiledTrajectory trajectory = trajectories.get(auto.getStepName(i));
+            for (final boolean red : new boolean[] {false, true}) {
+                for (double time = 0; time < trajectory.getTotalTime(red); time += AUTO_WARMUP_STEP) {
+                    trajectory.sample(time, red, state);
+                }
+            }
+        }
+    }
+
+    private Command build(String name) {
+        CompiledAuto auto = autos.get(name);
+        if (auto == null) {
+            try {
+                auto = load(name);
+            } catch (IOException | RuntimeException e) {
+                Log.recoverable("AutoCache", name + " is not compiled, running it through PathPlanner: " + e.getMessage());
+                return Trajectories.getPathPlannerAuto(name);
+            }
+        }
+        return Trajectories.buildAuto(auto, trajectories::get);
+    }
+
+    /**
+     * Builds at most one loaded auto and swaps in the selected one if it is ready. Call periodically while disabled.
+     * @param name Name of the selected auto.
+     */
+    public void update(String name) {
+        final String next = parsed.poll();
+        if (next != null) {
+            commands.put(next, build(next));
+        }
+        if (name == null || (name.equals(selectedName) && selected != null)) return;
+        Command command = commands.get(name);
+        if (command == null && next == null && autos.containsKey(name)) {
+            // rebuild an auto that was already handed out, a command can only be composed once
+            command = build(name);
+            commands.put(name, command);
+        }
+        if (command == null) return;
+        selectedName = name;
+        selected = command;
+    }
+
+    /**
+     * Hands out the command for an auto. The command is dropped from the cache since it can only be scheduled in one composition.
+     * @param name Name of the selected auto.
+     * @return The cached command for the auto, built on the spot if the cache has not gotten to it yet, or null if there is no such auto.
+     */
+    public Command get(String name) {
+        if (name == null || !Arrays.asList(autoNames).contains(name)) return null;
+        Command command = null;
+        if (name.equals(selectedName)) {
+            command = selected;
+            selected = null;
+        }
+        if (command == null) command = commands.get(name);
+        if (command == null) {
+            Log.recoverable("AutoCache", name + " was not cached, building it now");
+            command = build(name);
+        }
+        commands.remove(name);
+        return command;
+    }
+}
@@ -5,8 +5,6 @@ import common.utility.narwhaldashboard.NarwhalDashboard;
 
 import static edu.wpi.first.wpilibj2.command.Commands.*;
 
-import java.util.HashMap;
-
 /**
  * Class to store information about autonomous routines.
  * @author Daniel Wang, Mason Lam
@@ -14,7 +12,8 @@ import java.util.HashMap;
 
 public class AutoPrograms {
 
-    private HashMap<String, Command> autoMap = new HashMap<String, Command>();
+    private final AutoCache autoCache = new AutoCache();
+    private String selectedOverride;
 
     public AutoPrograms() {
 
@@ -23,19 +22,30 @@ public class AutoPrograms {
     }
 
     private void initAutoSelector() {
-        final String[] autoStrings = new String[] {
+        NarwhalDashboard.getInstance().addAutos(autoCache.getAutoNames());
+        autoCache.start();
+    }
 
-        };
-        
-        NarwhalDashboard.getInstance().addAutos(autoStrings);
-        for (final String auto : autoStrings) {
-            if (auto.equals("default")) continue;
-            autoMap.put(auto, Trajectories.getPathPlannerAuto(auto));
-        }
+    /**
+     * Keeps the selected auto built ahead of time, call while disabled.
+     */
+    public void update() {
+        autoCache.update(getSelectedAuto());
+    }
+
+    /**
+     * Selects an auto in place of the dashboard, for running without a dashboard such as in the headless simulation.
+     */
+    public void selectAuto(String name) {
+        selectedOverride = name;
+    }
+
+    private String getSelectedAuto() {
+        return selectedOverride != null ? selectedOverride : NarwhalDashboard.getInstance().getSelectedAuto();
     }
 
     public Command getAutonomousCommand() {
-        String selectedAutoName = NarwhalDashboard.getInstance().getSelectedAuto();
+        String selectedAutoName = getSelectedAuto();
         String hardcode = "";
         
         Command autoCommand;
@@ -45,7 +55,8 @@ public class AutoPrograms {
         else if (selectedAutoName.equals("default")) {
             defaultAuto();
         }
-        autoCommand = autoMap.get(selectedAutoName);
+        autoCommand = autoCache.get(selectedAutoName);
+        if (autoCommand == null) return null;
 
         return autoCommand.beforeStarting(Trajectories.resetAuto());
     }
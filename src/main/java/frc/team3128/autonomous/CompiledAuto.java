@@ -0,0 +1,113 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Auto precompiled at build time by {@link TrajectoryCompiler}: the starting pose and the steps it runs in order, each
+ * following a compiled path or running a named command.
+ * <p>
+ * Layout, little endian: {@code MAGIC, VERSION, step count, flags} ints, the blue then red starting pose as
+ * x, y and rotation in radians, then the steps as a type int and a length prefixed UTF-8 name.
+ */
+public class CompiledAuto {
+
+    public static final int MAGIC = 0x4E54524B;
+    public static final int VERSION = 2;
+    public static final String EXTENSION = ".autobin";
+    public static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    public static final int STEP_PATH = 0;
+    public static final int STEP_NAMED = 1;
+    // the auto resets odometry to its starting pose, PathPlanner only does when the auto sets one
+    public static final int FLAG_RESET_POSE = 1;
+
+    private final String name;
+    private final double[] startingPose = new double[6];
+    private final boolean resetPose;
+    private final int[] stepTypes;
+    private final String[] stepNames;
+
+    private CompiledAuto(String name, ByteBuffer buffer) {
+        this.name = name;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException(name + " is not a version " + VERSION + " compiled auto");
+        }
+        stepTypes = new int[buffer.getInt(8)];
+        stepNames = new String[stepTypes.length];
+        resetPose = (buffer.getInt(12) & FLAG_RESET_POSE) != 0;
+        int position = HEADER_BYTES;
+        for (int i = 0; i < startingPose.length; i++) {
+            startingPose[i] = buffer.getDouble(position);
+            position += Double.BYTES;
+        }
+        for (int i = 0; i < stepTypes.length; i++) {
+            stepTypes[i] = buffer.getInt(position);
+            position += Integer.BYTES;
+            final byte[] bytes = new byte[buffer.getInt(position)];
+            position += Integer.BYTES;
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buffer.get(position + j);
+            }
+            position += bytes.length;
+            stepNames[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Maps the compiled auto from the deploy directory.
+     * @param autoName Name of the PathPlanner auto.
+     */
+    public static CompiledAuto load(String autoName) throws IOException {
+        return load(autoName, new File(Filesystem.getDeployDirectory(), COMPILED_AUTO_DIRECTORY + "/" + autoName + EXTENSION));
+    }
+
+    public static CompiledAuto load(String autoName, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CompiledAuto(autoName, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStepCount() {
+        return stepTypes.length;
+    }
+
+    /**
+     * @return {@link #STEP_PATH} or {@link #STEP_NAMED}.
+     */
+    public int getStepType(int step) {
+        return stepTypes[step];
+    }
+
+    /**
+     * @return Name of the path or named command of a step.
+     */
+    public String getStepName(int step) {
+        return stepNames[step];
+    }
+
+    public boolean resetsPose() {
+        return resetPose;
+    }
+
+    public Pose2d getStartingPose(boolean red) {
+        final int offset = red ? 3 : 0;
+        return new Pose2d(startingPose[offset], startingPose[offset + 1], new Rotation2d(startingPose[offset + 2]));
+    }
+}
@@ -0,0 +1,187 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Trajectory precompiled at build time by {@link TrajectoryCompiler}, memory mapped and sampled without parsing or allocating.
+ * <p>
+ * Layout, little endian: a header of {@code MAGIC, VERSION, blue state count, red state count, marker count, reserved} ints,
+ * the blue states then the red states as {@link #STATE_SIZE} doubles each, {@link #MARKER_SIZE} doubles per event marker,
+ * then the marker names as a length prefixed UTF-8 table.
+ */
+public class CompiledTrajectory {
+
+    public static final int MAGIC = 0x4E54524A;
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".traj";
+
+    public static final int TIME = 0;
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int ROTATION = 3;
+    public static final int VELOCITY = 4;
+    public static final int ACCELERATION = 5;
+    public static final int HEADING = 6;
+    public static final int ANGULAR_VELOCITY = 7;
+    public static final int CURVATURE = 8;
+    public static final int STATE_SIZE = 9;
+
+    public static final int MARKER_TIME = 0;
+    public static final int MARKER_BLUE_X = 1;
+    public static final int MARKER_BLUE_Y = 2;
+    public static final int MARKER_RED_X = 3;
+    public static final int MARKER_RED_Y = 4;
+    public static final int MARKER_SIZE = 5;
+
+    public static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final String name;
+    private final MappedByteBuffer buffer;
+    private final int[] stateCounts = new int[2];
+    private final int[] stateOffsets = new int[2];
+    private final int markerCount;
+    private final int markerOffset;
+    private final String[] markerNames;
+
+    private CompiledTrajectory(String name, MappedByteBuffer buffer) {
+        this.name = name;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException(name + " is not a version " + VERSION + " compiled trajectory");
+        }
+        stateCounts[0] = buffer.getInt(8);
+        stateCounts[1] = buffer.getInt(12);
+        markerCount = buffer.getInt(16);
+        stateOffsets[0] = HEADER_BYTES;
+        stateOffsets[1] = stateOffsets[0] + stateCounts[0] * STATE_SIZE * Double.BYTES;
+        markerOffset = stateOffsets[1] + stateCounts[1] * STATE_SIZE * Double.BYTES;
+
+        // names are only decoded here so lookups during autonomous do not allocate
+        markerNames = new String[markerCount];
+        int position = markerOffset + markerCount * MARKER_SIZE * Double.BYTES;
+        for (int i = 0; i < markerCount; i++) {
+            final byte[] bytes = new byte[buffer.getInt(position)];
+            position += Integer.BYTES;
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buffer.get(position + j);
+            }
+            position += bytes.length;
+            markerNames[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Maps the compiled trajectory of a path from the deploy directory.
+     * @param pathName Name of the PathPlanner path.
+     */
+    public static CompiledTrajectory load(String pathName) throws IOException {
+        return load(pathName, new File(Filesystem.getDeployDirectory(), COMPILED_PATH_DIRECTORY + "/" + pathName + EXTENSION));
+    }
+
+    public static CompiledTrajectory load(String pathName, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CompiledTrajectory(pathName, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static int index(boolean red) {
+        return red ? 1 : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStateCount(boolean red) {
+        return stateCounts[index(red)];
+    }
+
+    public double getTotalTime(boolean red) {
+        return get(red, getStateCount(red) - 1, TIME);
+    }
+
+    /**
+     * @return A field of a stored state, one of the field constants such as {@link #X}.
+     */
+    public double get(boolean red, int state, int field) {
+        return buffer.getDouble(stateOffsets[index(red)] + (state * STATE_SIZE + field) * Double.BYTES);
+    }
+
+    /**
+     * Samples the trajectory, interpolating between the stored states the same way PathPlanner does.
+     * @param time Time since the start of the trajectory in seconds, clamped to the trajectory.
+     * @param red Whether to sample the trajectory flipped for the red alliance.
+     * @param out Array of at least {@link #STATE_SIZE} to fill, indexed by the field constants.
+     */
+    public void sample(double time, boolean red, double[] out) {
+        final int count = getStateCount(red);
+        if (time <= get(red, 0, TIME)) {
+            copy(red, 0, out);
+            return;
+        }
+        if (time >= get(red, count - 1, TIME)) {
+            copy(red, count - 1, out);
+            return;
+        }
+
+        int low = 1;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (get(red, mid, TIME) < time) low = mid + 1;
+            else high = mid - 1;
+        }
+        final int next = low;
+        final int previous = next - 1;
+        final double previousTime = get(red, previous, TIME);
+        final double span = get(red, next, TIME) - previousTime;
+        if (Math.abs(span) < 1e-9) {
+            copy(red, next, out);
+            return;
+        }
+        final double t = (time - previousTime) / span;
+        for (int field = 0; field < STATE_SIZE; field++) {
+            final double a = get(red, previous, field);
+            final double b = get(red, next, field);
+            if (field == ROTATION || field == HEADING) {
+                out[field] = MathUtil.angleModulus(a + MathUtil.angleModulus(b - a) * t);
+            }
+            else {
+                out[field] = a + (b - a) * t;
+            }
+        }
+    }
+
+    private void copy(boolean red, int state, double[] out) {
+        for (int field = 0; field < STATE_SIZE; field++) {
+            out[field] = get(red, state, field);
+        }
+    }
+
+    public int getMarkerCount() {
+        return markerCount;
+    }
+
+    public String getMarkerName(int marker) {
+        return markerNames[marker];
+    }
+
+    /**
+     * @return A field of an event marker, one of the marker constants such as {@link #MARKER_TIME}.
+     */
+    public double getMarker(int marker, int field) {
+        return buffer.getDouble(markerOffset + (marker * MARKER_SIZE + field) * Double.BYTES);
+    }
+}
@@ -0,0 +1,229 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Navgrid tables precomputed by {@link NavGridCompiler}: the clearance of every cell and, for every named location,
+ * the cost to reach it from every cell. Routing to a named location only walks down the cost field, so it takes
+ * microseconds instead of a live A* search.
+ * <p>
+ * Layout, little endian: {@code MAGIC, VERSION, rows, cols, location count, reserved} ints and the node size as a double,
+ * the clearance of every cell as floats, {@link #LOCATION_SIZE} doubles per location, the blue then red cost field of
+ * every location as floats, then the location names as a length prefixed UTF-8 table.
+ */
+public class NavGrid {
+
+    public static final int MAGIC = 0x4E54524C;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 6 * Integer.BYTES + Double.BYTES;
+    public static final int LOCATION_SIZE = 4;
+
+    private static final int[][] NEIGHBORS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final double nodeSize;
+    private final String[] names;
+    private final int locationOffset;
+    private final int costOffset;
+    private final int[] cellPath;
+
+    private NavGrid(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a version " + VERSION + " compiled navgrid");
+        }
+        rows = buffer.getInt(8);
+        cols = buffer.getInt(12);
+        names = new String[buffer.getInt(16)];
+        nodeSize = buffer.getDouble(24);
+        locationOffset = HEADER_BYTES + rows * cols * Float.BYTES;
+        costOffset = locationOffset + names.length * LOCATION_SIZE * Double.BYTES;
+        cellPath = new int[rows * cols];
+
+        int position = costOffset + names.length * 2 * rows * cols * Float.BYTES;
+        for (int i = 0; i < names.length; i++) {
+            final byte[] bytes = new byte[buffer.getInt(position)];
+            position += Integer.BYTES;
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buffer.get(position + j);
+            }
+            position += bytes.length;
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Maps the compiled navgrid from the deploy directory.
+     */
+    public static NavGrid load() throws IOException {
+        return load(new File(Filesystem.getDeployDirectory(), COMPILED_NAVGRID_FILE));
+    }
+
+    public static NavGrid load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new NavGrid(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String[] getLocationNames() {
+        return names;
+    }
+
+    /**
+     * @return Index of a named location, or -1 if there is none.
+     */
+    public int getLocation(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Index of the named location closest to a point within {@code NAV_LOCATION_TOLERANCE}, or -1 if there is none.
+     */
+    public int findLocation(double x, double y, boolean red) {
+        int best = -1;
+        double bestDistance = NAV_LOCATION_TOLERANCE;
+        for (int i = 0; i < names.length; i++) {
+            final double distance = Math.hypot(getLocationX(i, red) - x, getLocationY(i, red) - y);
+            if (distance <= bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public double getLocationX(int location, boolean red) {
+        return buffer.getDouble(locationOffset + (location * LOCATION_SIZE + (red ? 2 : 0)) * Double.BYTES);
+    }
+
+    public double getLocationY(int location, boolean red) {
+        return buffer.getDouble(locationOffset + (location * LOCATION_SIZE + (red ? 3 : 1)) * Double.BYTES);
+    }
+
+    /**
+     * @return Distance in meters from a point to the nearest obstacle, 0 inside obstacles and off the field.
+     */
+    public double getClearance(double x, double y) {
+        final int cell = cellAt(x, y);
+        return cell == -1 ? 0 : buffer.getFloat(HEADER_BYTES + cell * Float.BYTES);
+    }
+
+    private int cellAt(double x, double y) {
+        final int col = (int) Math.floor(x / nodeSize);
+        final int row = (int) Math.floor(y / nodeSize);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) return -1;
+        return row * cols + col;
+    }
+
+    private float getCost(int location, boolean red, int cell) {
+        return buffer.getFloat(costOffset + ((location * 2 + (red ? 1 : 0)) * rows * cols + cell) * Float.BYTES);
+    }
+
+    /**
+     * Routes from a point to a named location by walking down its cost field, then drops every waypoint that has a
+     * clear line of sight past it.
+     * @return Waypoints starting at the given point and ending at the location, or null if it can not be reached.
+     */
+    public synchronized List<Translation2d> route(int location, boolean red, double x, double y) {
+        int cell = cellAt(x, y);
+        if (cell == -1 || Float.isInfinite(getCost(location, red, cell))) {
+            cell = nearestReachable(location, red, x, y);
+            if (cell == -1) return null;
+        }
+
+        int length = 0;
+        cellPath[length++] = cell;
+        while (getCost(location, red, cell) > 0 && length < cellPath.length) {
+            final int row = cell / cols;
+            final int col = cell % cols;
+            int next = -1;
+            float nextCost = getCost(location, red, cell);
+            for (final int[] step : NEIGHBORS) {
+                final int r = row + step[1];
+                final int c = col + step[0];
+                if (r < 0 || r >= rows || c < 0 || c >= cols) continue;
+                final float cost = getCost(location, red, r * cols + c);
+                if (cost < nextCost) {
+                    nextCost = cost;
+                    next = r * cols + c;
+                }
+            }
+            if (next == -1) break;
+            cell = next;
+            cellPath[length++] = cell;
+        }
+
+        final ArrayList<Translation2d> waypoints = new ArrayList<Translation2d>();
+        double anchorX = x;
+        double anchorY = y;
+        waypoints.add(new Translation2d(x, y));
+        int index = 0;
+        while (index < length - 1) {
+            int farthest = index + 1;
+            for (int i = length - 1; i > index + 1; i--) {
+                if (isClear(anchorX, anchorY, centerX(cellPath[i]), centerY(cellPath[i]))) {
+                    farthest = i;
+                    break;
+                }
+            }
+            index = farthest;
+            if (index == length - 1) break;
+            anchorX = centerX(cellPath[index]);
+            anchorY = centerY(cellPath[index]);
+            waypoints.add(new Translation2d(anchorX, anchorY));
+        }
+        waypoints.add(new Translation2d(getLocationX(location, red), getLocationY(location, red)));
+        return waypoints;
+    }
+
+    private int nearestReachable(int location, boolean red, double x, double y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (Float.isInfinite(getCost(location, red, cell))) continue;
+            final double distance = Math.hypot(centerX(cell) - x, centerY(cell) - y);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    private double centerX(int cell) {
+        return (cell % cols + 0.5) * nodeSize;
+    }
+
+    private double centerY(int cell) {
+        return (cell / cols + 0.5) * nodeSize;
+    }
+
+    private boolean isClear(double x1, double y1, double x2, double y2) {
+        final double distance = Math.hypot(x2 - x1, y2 - y1);
+        final int steps = (int) Math.ceil(distance / (nodeSize / 2));
+        for (int i = 0; i <= steps; i++) {
+            final double t = steps == 0 ? 0 : (double) i / steps;
+            if (getClearance(x1 + (x2 - x1) * t, y1 + (y2 - y1) * t) < NAV_MIN_CLEARANCE) return false;
+        }
+        return true;
+    }
+}
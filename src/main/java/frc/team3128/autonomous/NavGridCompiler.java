@@ -0,0 +1,189 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.pathplanner.lib.util.GeometryUtil;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import static frc.team3128.autonomous.NavGrid.*;
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Build step that precomputes the tables read by {@link NavGrid} from the PathPlanner navgrid: the distance from every
+ * cell to the nearest obstacle, and for every named location (the linked waypoints of the paths) on each alliance the
+ * cost to reach it from every cell. Run with {@code ./gradlew compileNavGrid}.
+ */
+public class NavGridCompiler {
+
+    private static final int[][] NEIGHBORS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private final int rows;
+    private final int cols;
+    private final double nodeSize;
+    private final boolean[] obstacles;
+    private final float[] clearance;
+
+    public NavGridCompiler(JSONObject navgrid) {
+        nodeSize = ((Number) navgrid.get("nodeSizeMeters")).doubleValue();
+        final JSONArray grid = (JSONArray) navgrid.get("grid");
+        rows = grid.size();
+        cols = ((JSONArray) grid.get(0)).size();
+        obstacles = new boolean[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            final JSONArray cells = (JSONArray) grid.get(row);
+            for (int col = 0; col < cols; col++) {
+                obstacles[row * cols + col] = (Boolean) cells.get(col);
+            }
+        }
+        clearance = computeClearance();
+    }
+
+    /**
+     * @param args Deploy directory to read from and write to. The build always passes it, only falling back to
+     * {@link Filesystem#getDeployDirectory()}, which loads the HAL, when run by hand.
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        final File deploy = args.length > 0 ? new File(args[0]) : Filesystem.getDeployDirectory();
+        final File output = new File(deploy, COMPILED_NAVGRID_FILE);
+        output.getParentFile().mkdirs();
+        final NavGridCompiler compiler = new NavGridCompiler(read(new File(deploy, NAVGRID_FILE)));
+        compiler.write(findLocations(deploy), output);
+    }
+
+    private static JSONObject read(File file) throws IOException, ParseException {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+            return (JSONObject) new JSONParser().parse(reader);
+        }
+    }
+
+    /**
+     * @return Blue alliance position of every linked waypoint in the paths, sorted by name.
+     */
+    private static Map<String, Translation2d> findLocations(File deploy) throws IOException, ParseException {
+        final TreeMap<String, Translation2d> locations = new TreeMap<String, Translation2d>();
+        final File[] paths = new File(deploy, PATH_DIRECTORY).listFiles((dir, name) -> name.endsWith(".path"));
+        if (paths == null) return locations;
+        for (final File path : paths) {
+            for (final Object object : (JSONArray) read(path).get("waypoints")) {
+                final JSONObject waypoint = (JSONObject) object;
+                final Object name = waypoint.get("linkedName");
+                if (name == null) continue;
+                final JSONObject anchor = (JSONObject) waypoint.get("anchor");
+                locations.put(name.toString(), new Translation2d(((Number) anchor.get("x")).doubleValue(), ((Number) anchor.get("y")).doubleValue()));
+            }
+        }
+        return locations;
+    }
+
+    private float[] computeClearance() {
+        final float[] distances = new float[rows * cols];
+        for (int cell = 0; cell < distances.length; cell++) {
+            if (obstacles[cell]) continue;
+            double best = Double.POSITIVE_INFINITY;
+            for (int other = 0; other < distances.length; other++) {
+                if (!obstacles[other]) continue;
+                best = Math.min(best, Math.hypot(other / cols - cell / cols, other % cols - cell % cols));
+            }
+            // from the cell center to the edge of the nearest obstacle cell
+            distances[cell] = (float) ((best - 0.5) * nodeSize);
+        }
+        return distances;
+    }
+
+    private int nearestFree(Translation2d position) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int cell = 0; cell < obstacles.length; cell++) {
+            if (obstacles[cell]) continue;
+            final double distance = Math.hypot((cell % cols + 0.5) * nodeSize - position.getX(), (cell / cols + 0.5) * nodeSize - position.getY());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra outwards from the goal, steps are penalized for passing close to obstacles.
+     */
+    private float[] computeCosts(Translation2d goal) {
+        final float[] costs = new float[rows * cols];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        final int start = nearestFree(goal);
+        if (start == -1) return costs;
+
+        final PriorityQueue<double[]> open = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+        costs[start] = 0;
+        open.add(new double[] {0, start});
+        while (!open.isEmpty()) {
+            final double[] next = open.poll();
+            final int cell = (int) next[1];
+            if (next[0] > costs[cell]) continue;
+            final int row = cell / cols;
+            final int col = cell % cols;
+            for (final int[] step : NEIGHBORS) {
+                final int r = row + step[1];
+                final int c = col + step[0];
+                if (r < 0 || r >= rows || c < 0 || c >= cols || obstacles[r * cols + c]) continue;
+                // no cutting corners of obstacles on diagonal steps
+                if (step[0] != 0 && step[1] != 0 && (obstacles[row * cols + c] || obstacles[r * cols + col])) continue;
+                final int neighbor = r * cols + c;
+                final double penalty = Math.max(0, 1 - clearance[neighbor] / NAV_PREFERRED_CLEARANCE);
+                final double cost = next[0] + Math.hypot(step[0], step[1]) * nodeSize * (1 + NAV_CLEARANCE_WEIGHT * penalty);
+                if (cost < costs[neighbor]) {
+                    costs[neighbor] = (float) cost;
+                    open.add(new double[] {cost, neighbor});
+                }
+            }
+        }
+        return costs;
+    }
+
+    public void write(Map<String, Translation2d> locations, File output) throws IOException {
+        final int cells = rows * cols;
+        final byte[][] names = new byte[locations.size()][];
+        int size = HEADER_BYTES + cells * Float.BYTES + locations.size() * (LOCATION_SIZE * Double.BYTES + 2 * cells * Float.BYTES);
+        int index = 0;
+        for (final String name : locations.keySet()) {
+            names[index] = name.getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + names[index].length;
+            index++;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(locations.size()).putInt(0).putDouble(nodeSize);
+        for (final float value : clearance) buffer.putFloat(value);
+        for (final Translation2d blue : locations.values()) {
+            final Translation2d red = GeometryUtil.flipFieldPosition(blue);
+            buffer.putDouble(blue.getX()).putDouble(blue.getY()).putDouble(red.getX()).putDouble(red.getY());
+        }
+        for (final Translation2d blue : locations.values()) {
+            for (final float value : computeCosts(blue)) buffer.putFloat(value);
+            for (final float value : computeCosts(GeometryUtil.flipFieldPosition(blue))) buffer.putFloat(value);
+        }
+        for (final byte[] name : names) {
+            buffer.putInt(name.length).put(name);
+        }
+        Files.write(output.toPath(), buffer.array());
+        System.out.println("Compiled navgrid: " + rows + "x" + cols + " cells, locations " + locations.keySet() + ", " + size + " bytes");
+    }
+}
@@ -5,13 +5,19 @@ import com.pathplanner.lib.util.PIDConstants;
 import com.pathplanner.lib.util.ReplanningConfig;
 
 import common.core.commands.NAR_PIDCommand;
+import common.utility.Log;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.commands.FollowPathHolonomic;
 import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathPlannerPath;
 import com.pathplanner.lib.pathfinding.LocalADStar;
 import com.pathplanner.lib.pathfinding.Pathfinding;
 
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
@@ -23,13 +29,21 @@ import static frc.team3128.Constants.SwerveConstants.*;
 
 import frc.team3128.Constants.AutoConstants;
 import frc.team3128.Robot;
+import frc.team3128.commands.CmdFollowTrajectory;
 import frc.team3128.commands.CmdManager;
 import frc.team3128.commands.CmdSwerveDrive;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.function.DoubleSupplier;
+import java.util.function.Function;
 
 import frc.team3128.subsystems.Swerve;
 import frc.team3128.subsystems.Intake;
+import frc.team3128.subsystems.Superstructure;
+import frc.team3128.subsystems.Superstructure.Request;
 
 /**
  * Store trajectories for autonomous. Edit points here. 
@@ -40,27 +54,35 @@ public class Trajectories {
     private static final Swerve swerve = Swerve.getInstance();
     private static double vx = 0, vy = 0;
     private static boolean turning = false;
+    private static NavGrid navGrid;
+
+    private static final HolonomicPathFollowerConfig pathFollowerConfig = new HolonomicPathFollowerConfig(
+        new PIDConstants(translationKP, translationKI, translationKD),
+        new PIDConstants(rotationKP, rotationKI, rotationKD),
+        maxAttainableSpeed,
+        trackWidth,
+        new ReplanningConfig(false, true)
+    );
 
     public static void initTrajectories() {
         Pathfinding.setPathfinder(new LocalADStar());
+        try {
+            navGrid = NavGrid.load();
+        } catch (IOException | IllegalStateException e) {
+            Log.recoverable("Trajectories", "No compiled navgrid, goToPoint will pathfind live: " + e.getMessage());
+        }
 
         // TODO: add commands
         NamedCommands.registerCommand("ramShoot", CmdManager.ramShoot(true));
         NamedCommands.registerCommand("ramShootNoStop", CmdManager.ramShoot(false));
-        NamedCommands.registerCommand("intakeAndStop", Intake.getInstance().setState(Intake.IntakeState.INTAKE));
+        NamedCommands.registerCommand("intakeAndStop", Superstructure.getInstance().request(Request.INTAKE));
 
         AutoBuilder.configureHolonomic(
             swerve::getPose,
             swerve::resetOdometry,
             swerve::getRobotVelocity,
             Trajectories::drive,
-            new HolonomicPathFollowerConfig(
-                new PIDConstants(translationKP, translationKI, translationKD),
-                new PIDConstants(rotationKP, rotationKI, rotationKD),
-                maxAttainableSpeed,
-                trackWidth,
-                new ReplanningConfig(false, true)
-            ),
+            pathFollowerConfig,
             ()-> Robot.getAlliance() == Alliance.Red,
             swerve
         );
@@ -99,13 +121,69 @@ public class Trajectories {
         return new PathPlannerAuto(name);
     }
 
+    /**
+     * Builds an auto from its compiled steps. Paths follow the trajectories compiled for both alliances, so nothing is
+     * parsed or generated when it runs. Named commands that are not registered do nothing, like in PathPlanner.
+     * @param paths Compiled trajectory of each path the auto follows.
+     */
+    public static Command buildAuto(CompiledAuto auto, Function<String, CompiledTrajectory> paths) {
+        final Command[] steps = new Command[auto.getStepCount() + 1];
+        steps[0] = auto.resetsPose() ? runOnce(()-> swerve.resetOdometry(auto.getStartingPose(Robot.getAlliance() == Alliance.Red))) : none();
+        for (int i = 0; i < auto.getStepCount(); i++) {
+            final String name = auto.getStepName(i);
+            if (auto.getStepType(i) == CompiledAuto.STEP_PATH) {
+                steps[i + 1] = new CmdFollowTrajectory(paths.apply(name));
+            }
+            else if (NamedCommands.hasCommand(name)) {
+                steps[i + 1] = NamedCommands.getCommand(name);
+            }
+            else {
+                Log.recoverable("Trajectories", auto.getName() + " uses unregistered command " + name);
+                steps[i + 1] = none();
+            }
+        }
+        return sequence(steps);
+    }
+
+    /**
+     * Drives to a pose. Poses at a named location of the compiled navgrid are routed from its precomputed tables,
+     * anything else is pathfound live.
+     */
     public static Command goToPoint(Pose2d pose) {
-        return AutoBuilder.pathfindToPose(
-            pose,
+        return defer(()-> {
+            final Command routed = routeTo(pose);
+            if (routed != null) return routed;
+            return AutoBuilder.pathfindToPose(
+                pose,
+                AutoConstants.constraints,
+                0.0, // Goal end velocity in meters/sec
+                0.0 // Rotation delay distance in meters. This is how far the robot should travel before attempting to rotate.
+            );
+        }, Set.of(swerve));
+    }
+
+    private static Command routeTo(Pose2d pose) {
+        if (navGrid == null) return null;
+        final boolean red = Robot.getAlliance() == Alliance.Red;
+        final int location = navGrid.findLocation(pose.getX(), pose.getY(), red);
+        if (location == -1) return null;
+        final Pose2d start = swerve.getPose();
+        final List<Translation2d> route = navGrid.route(location, red, start.getX(), start.getY());
+        if (route == null || route.get(0).getDistance(route.get(route.size() - 1)) < NAV_MIN_CLEARANCE) return null;
+
+        // bezier poses point along the direction of travel
+        final ArrayList<Pose2d> poses = new ArrayList<Pose2d>();
+        for (int i = 0; i < route.size(); i++) {
+            final Translation2d from = route.get(Math.max(0, i == route.size() - 1 ? i - 1 : i));
+            final Translation2d to = route.get(i == route.size() - 1 ? i : i + 1);
+            poses.add(new Pose2d(route.get(i), new Rotation2d(to.getX() - from.getX(), to.getY() - from.getY())));
+        }
+        final PathPlannerPath path = new PathPlannerPath(
+            PathPlannerPath.bezierFromPoses(poses),
             AutoConstants.constraints,
-            0.0, // Goal end velocity in meters/sec
-            0.0 // Rotation delay distance in meters. This is how far the robot should travel before attempting to rotate.
+            new GoalEndState(0, pose.getRotation())
         );
+        // the route is already in field coordinates for the current alliance
+        return new FollowPathHolonomic(path, swerve::getPose, swerve::getRobotVelocity, Trajectories::drive, pathFollowerConfig, ()-> false, swerve);
     }
-    
-}
\ No newline at end of file
+}
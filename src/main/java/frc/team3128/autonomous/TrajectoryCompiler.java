@@ -0,0 +1,323 @@
+package frc.team3128.autonomous;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+import com.pathplanner.lib.path.PathPoint;
+import com.pathplanner.lib.path.PathSegment;
+import com.pathplanner.lib.util.GeometryUtil;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import static frc.team3128.autonomous.CompiledTrajectory.*;
+import static frc.team3128.Constants.AutoConstants.*;
+
+/**
+ * Build step that compiles every PathPlanner path and auto in the deploy directory into the binary formats read by
+ * {@link CompiledTrajectory} and {@link CompiledAuto}. Trajectories are generated by PathPlanner itself from rest,
+ * the same way {@link AutoCache} warms them up, and every file is read back and checked against PathPlanner's output.
+ * Run with {@code ./gradlew compileTrajectories}.
+ */
+public class TrajectoryCompiler {
+
+    private static final double VERIFY_STEP = 0.01;
+    private static final double STATE_TOLERANCE = 1e-9;
+    // samples are interpolated independently of PathPlanner, so they only need to agree to within a few millimeters
+    private static final double SAMPLE_TOLERANCE = 5e-3;
+
+    private final File pathDirectory;
+    private final File autoDirectory;
+    private final File outputDirectory;
+    private int failures = 0;
+
+    /**
+     * @param outputDirectory Deploy directory to write the compiled files to.
+     */
+    public TrajectoryCompiler(File outputDirectory) {
+        this.pathDirectory = new File(Filesystem.getDeployDirectory(), PATH_DIRECTORY);
+        this.autoDirectory = new File(Filesystem.getDeployDirectory(), AUTO_DIRECTORY);
+        this.outputDirectory = outputDirectory;
+    }
+
+    public static void main(String[] args) throws IOException, ParseException {
+        // PathPlanner builds event marker commands while parsing, which touches the HAL
+        HAL.initialize(500, 0);
+        final File output = args.length > 0 ? new File(args[0]) : Filesystem.getDeployDirectory();
+        final TrajectoryCompiler compiler = new TrajectoryCompiler(output);
+        compiler.compileAll();
+        if (compiler.failures > 0) {
+            System.err.println(compiler.failures + " compiled trajectories did not match PathPlanner");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    public void compileAll() throws IOException, ParseException {
+        final File paths = new File(outputDirectory, COMPILED_PATH_DIRECTORY);
+        final File autos = new File(outputDirectory, COMPILED_AUTO_DIRECTORY);
+        paths.mkdirs();
+        autos.mkdirs();
+
+        for (final File file : list(pathDirectory, ".path")) {
+            final String name = stripExtension(file, ".path");
+            compilePath(name, file, new File(paths, name + EXTENSION));
+        }
+        for (final File file : list(autoDirectory, ".auto")) {
+            final String name = stripExtension(file, ".auto");
+            compileAuto(name, file, new File(autos, name + CompiledAuto.EXTENSION));
+        }
+    }
+
+    private static File[] list(File directory, String extension) {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(extension));
+        return files == null ? new File[0] : files;
+    }
+
+    private static String stripExtension(File file, String extension) {
+        return file.getName().substring(0, file.getName().length() - extension.length());
+    }
+
+    private static JSONObject read(File file) throws IOException, ParseException {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+            return (JSONObject) new JSONParser().parse(reader);
+        }
+    }
+
+    private static PathPlannerTrajectory generate(PathPlannerPath path) {
+        return path.getTrajectory(new ChassisSpeeds(), path.getPreviewStartingHolonomicPose().getRotation());
+    }
+
+    private void compilePath(String name, File source, File output) throws IOException, ParseException {
+        final PathPlannerPath path = PathPlannerPath.fromPathFile(name);
+        final PathPlannerTrajectory blue = generate(path);
+        final PathPlannerTrajectory red = generate(path.flipPath());
+
+        final JSONArray markerJson = (JSONArray) read(source).get("eventMarkers");
+        final int markerCount = markerJson == null ? 0 : markerJson.size();
+        final byte[][] markerNames = new byte[markerCount][];
+        final double[][] markers = new double[markerCount][];
+        final List<PathPoint> points = path.getAllPathPoints();
+        for (int i = 0; i < markerCount; i++) {
+            final JSONObject marker = (JSONObject) markerJson.get(i);
+            final Object markerName = marker.get("name");
+            markerNames[i] = (markerName == null ? "" : markerName.toString()).getBytes(StandardCharsets.UTF_8);
+
+            final double waypointPos = ((Number) marker.get("waypointRelativePos")).doubleValue();
+            final int pointIndex = MathUtil.clamp((int) Math.round(waypointPos / PathSegment.RESOLUTION), 0, points.size() - 1);
+            final Translation2d position = points.get(pointIndex).position;
+            final Translation2d flipped = GeometryUtil.flipFieldPosition(position);
+            markers[i] = new double[MARKER_SIZE];
+            markers[i][MARKER_TIME] = closestTime(blue, position);
+            markers[i][MARKER_BLUE_X] = position.getX();
+            markers[i][MARKER_BLUE_Y] = position.getY();
+            markers[i][MARKER_RED_X] = flipped.getX();
+            markers[i][MARKER_RED_Y] = flipped.getY();
+        }
+
+        final int blueCount = blue.getStates().size();
+        final int redCount = red.getStates().size();
+        int size = HEADER_BYTES + (blueCount + redCount) * STATE_SIZE * Double.BYTES + markerCount * MARKER_SIZE * Double.BYTES;
+        for (final byte[] markerName : markerNames) {
+            size += Integer.BYTES + markerName.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(blueCount).putInt(redCount).putInt(markerCount).putInt(0);
+        putStates(buffer, blue);
+        putStates(buffer, red);
+        // followers walk the markers in order, so they are stored sorted by time
+        final Integer[] order = new Integer[markerCount];
+        for (int i = 0; i < markerCount; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> markers[i][MARKER_TIME]));
+        for (final int i : order) {
+            for (final double value : markers[i]) buffer.putDouble(value);
+        }
+        for (final int i : order) {
+            buffer.putInt(markerNames[i].length).put(markerNames[i]);
+        }
+        Files.write(output.toPath(), buffer.array());
+
+        final CompiledTrajectory compiled = CompiledTrajectory.load(name, output);
+        verify(compiled, false, blue);
+        verify(compiled, true, red);
+        System.out.println("Compiled " + name + ": " + blueCount + " states, " + markerCount + " markers, " + size + " bytes");
+    }
+
+    private static double closestTime(PathPlannerTrajectory trajectory, Translation2d position) {
+        double bestTime = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (final PathPlannerTrajectory.State state : trajectory.getStates()) {
+            final double distance = state.positionMeters.getDistance(position);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestTime = state.timeSeconds;
+            }
+        }
+        return bestTime;
+    }
+
+    private static void putStates(ByteBuffer buffer, PathPlannerTrajectory trajectory) {
+        final double[] values = new double[STATE_SIZE];
+        for (final PathPlannerTrajectory.State state : trajectory.getStates()) {
+            fill(state, values);
+            for (final double value : values) buffer.putDouble(value);
+        }
+    }
+
+    private static void fill(PathPlannerTrajectory.State state, double[] values) {
+        values[TIME] = state.timeSeconds;
+        values[X] = state.positionMeters.getX();
+        values[Y] = state.positionMeters.getY();
+        values[ROTATION] = state.targetHolonomicRotation.getRadians();
+        values[VELOCITY] = state.velocityMps;
+        values[ACCELERATION] = state.accelerationMpsSq;
+        values[HEADING] = state.heading.getRadians();
+        values[ANGULAR_VELOCITY] = state.holonomicAngularVelocityRps.orElse(0.0);
+        values[CURVATURE] = state.curvatureRadPerMeter;
+    }
+
+    private void verify(CompiledTrajectory compiled, boolean red, PathPlannerTrajectory expected) {
+        final String label = compiled.getName() + (red ? " (red)" : " (blue)");
+        final List<PathPlannerTrajectory.State> states = expected.getStates();
+        if (compiled.getStateCount(red) != states.size()) {
+            fail(label, "state count " + compiled.getStateCount(red) + " != " + states.size());
+            return;
+        }
+
+        final double[] values = new double[STATE_SIZE];
+        for (int i = 0; i < states.size(); i++) {
+            fill(states.get(i), values);
+            for (int field = 0; field < STATE_SIZE; field++) {
+                if (!matches(field, compiled.get(red, i, field), values[field], STATE_TOLERANCE)) {
+                    fail(label, "state " + i + " field " + field);
+                    return;
+                }
+            }
+        }
+
+        // interpolation is compared on pose and velocity, the fields followers use
+        final double[] sample = new double[STATE_SIZE];
+        for (double time = 0; time <= expected.getTotalTimeSeconds(); time += VERIFY_STEP) {
+            compiled.sample(time, red, sample);
+            final PathPlannerTrajectory.State state = expected.sample(time);
+            fill(state, values);
+            for (final int field : new int[] {X, Y, ROTATION, VELOCITY}) {
+                if (!matches(field, sample[field], values[field], SAMPLE_TOLERANCE)) {
+                    fail(label, "sample at " + time + " s field " + field + ": " + sample[field] + " != " + values[field]);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean matches(int field, double actual, double expected, double tolerance) {
+        if (field == ROTATION || field == HEADING) {
+            return Math.abs(MathUtil.angleModulus(actual - expected)) <= tolerance;
+        }
+        return Math.abs(actual - expected) <= tolerance;
+    }
+
+    private void fail(String label, String message) {
+        failures++;
+        System.err.println(label + " does not match PathPlanner: " + message);
+    }
+
+    private void compileAuto(String name, File source, File output) throws IOException, ParseException {
+        final JSONObject json = read(source);
+        final List<Integer> types = new ArrayList<Integer>();
+        final List<String> names = new ArrayList<String>();
+        if (!collectSteps(name, (JSONObject) json.get("command"), types, names)) return;
+
+        final JSONObject startingPose = (JSONObject) json.get("startingPose");
+        Pose2d blue = new Pose2d();
+        if (startingPose != null) {
+            final JSONObject position = (JSONObject) startingPose.get("position");
+            blue = new Pose2d(
+                ((Number) position.get("x")).doubleValue(),
+                ((Number) position.get("y")).doubleValue(),
+                Rotation2d.fromDegrees(((Number) startingPose.get("rotation")).doubleValue())
+            );
+        }
+        final Pose2d red = GeometryUtil.flipFieldPose(blue);
+
+        final byte[][] nameBytes = new byte[names.size()][];
+        int size = CompiledAuto.HEADER_BYTES + 6 * Double.BYTES;
+        for (int i = 0; i < nameBytes.length; i++) {
+            nameBytes[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            size += 2 * Integer.BYTES + nameBytes[i].length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CompiledAuto.MAGIC).putInt(CompiledAuto.VERSION).putInt(nameBytes.length)
+            .putInt(startingPose != null ? CompiledAuto.FLAG_RESET_POSE : 0);
+        for (final Pose2d pose : new Pose2d[] {blue, red}) {
+            buffer.putDouble(pose.getX()).putDouble(pose.getY()).putDouble(pose.getRotation().getRadians());
+        }
+        for (int i = 0; i < nameBytes.length; i++) {
+            buffer.putInt(types.get(i)).putInt(nameBytes[i].length).put(nameBytes[i]);
+        }
+        Files.write(output.toPath(), buffer.array());
+
+        final CompiledAuto compiled = CompiledAuto.load(name, output);
+        boolean matches = compiled.getStepCount() == names.size() && compiled.resetsPose() == (startingPose != null)
+            && compiled.getStartingPose(true).equals(red);
+        for (int i = 0; matches && i < names.size(); i++) {
+            matches = compiled.getStepType(i) == types.get(i) && compiled.getStepName(i).equals(names.get(i));
+        }
+        if (!matches) fail(name, "auto read back differently");
+        System.out.println("Compiled " + name + ": " + names);
+    }
+
+    /**
+     * Flattens an auto into its steps. Only sequential groups of paths and named commands can be compiled, anything
+     * else fails the build instead of running differently from PathPlanner.
+     * @return False if the auto could not be compiled.
+     */
+    private boolean collectSteps(String auto, JSONObject command, List<Integer> types, List<String> names) {
+        if (command == null) return true;
+        final Object type = command.get("type");
+        final JSONObject data = (JSONObject) command.get("data");
+        if ("path".equals(type)) {
+            types.add(CompiledAuto.STEP_PATH);
+            names.add((String) data.get("pathName"));
+            return true;
+        }
+        if ("named".equals(type)) {
+            types.add(CompiledAuto.STEP_NAMED);
+            names.add((String) data.get("name"));
+            return true;
+        }
+        if (!"sequential".equals(type)) {
+            fail(auto, "unsupported " + type + " command");
+            return false;
+        }
+        final JSONArray commands = data == null ? null : (JSONArray) data.get("commands");
+        if (commands == null) return true;
+        for (final Object child : commands) {
+            if (!collectSteps(auto, (JSONObject) child, types, names)) return false;
+        }
+        return true;
+    }
+}
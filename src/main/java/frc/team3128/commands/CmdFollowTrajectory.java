@@ -0,0 +1,112 @@
+package frc.team3128.commands;
+
+import static frc.team3128.Constants.AutoConstants.*;
+import static frc.team3128.autonomous.CompiledTrajectory.*;
+
+import com.pathplanner.lib.auto.NamedCommands;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.team3128.Robot;
+import frc.team3128.autonomous.CompiledTrajectory;
+import frc.team3128.subsystems.Swerve;
+
+/**
+ * Follows a precompiled trajectory without allocating, scheduling the named command of each event marker as it is passed.
+ */
+public class CmdFollowTrajectory extends Command {
+    // follower running now, read by the simulation to measure tracking error
+    private static CmdFollowTrajectory active;
+
+    private final Swerve swerve;
+    private final CompiledTrajectory trajectory;
+    private final PIDController xController;
+    private final PIDController yController;
+    private final PIDController rController;
+    private final Command[] markerCommands;
+    private final Timer timer = new Timer();
+    private final double[] state = new double[STATE_SIZE];
+
+    private boolean red;
+    private int nextMarker;
+
+    public CmdFollowTrajectory(CompiledTrajectory trajectory) {
+        this.swerve = Swerve.getInstance();
+        this.trajectory = trajectory;
+        addRequirements(swerve);
+
+        xController = new PIDController(translationKP, translationKI, translationKD);
+        yController = new PIDController(translationKP, translationKI, translationKD);
+        rController = new PIDController(rotationKP, rotationKI, rotationKD);
+        rController.enableContinuousInput(-Math.PI, Math.PI);
+
+        markerCommands = new Command[trajectory.getMarkerCount()];
+        for (int i = 0; i < markerCommands.length; i++) {
+            final String name = trajectory.getMarkerName(i);
+            if (NamedCommands.hasCommand(name)) markerCommands[i] = NamedCommands.getCommand(name);
+        }
+    }
+
+    @Override
+    public void initialize() {
+        red = Robot.getAlliance() == Alliance.Red;
+        xController.reset();
+        yController.reset();
+        rController.reset();
+        nextMarker = 0;
+        trajectory.sample(0, red, state);
+        timer.restart();
+        active = this;
+    }
+
+    @Override
+    public void execute() {
+        final double time = timer.get();
+        trajectory.sample(time, red, state);
+        final Pose2d pose = swerve.getPose();
+        final double rotation = pose.getRotation().getRadians();
+
+        final double vx = state[VELOCITY] * Math.cos(state[HEADING]) + xController.calculate(pose.getX(), state[X]);
+        final double vy = state[VELOCITY] * Math.sin(state[HEADING]) + yController.calculate(pose.getY(), state[Y]);
+        final double omega = state[ANGULAR_VELOCITY] + rController.calculate(rotation, state[ROTATION]);
+
+        // same as PathPlanner, the field relative output is rotated by the odometry heading
+        final double cos = Math.cos(rotation);
+        final double sin = Math.sin(rotation);
+        swerve.drive(vx * cos + vy * sin, -vx * sin + vy * cos, omega, false);
+
+        while (nextMarker < markerCommands.length && trajectory.getMarker(nextMarker, MARKER_TIME) <= time) {
+            if (markerCommands[nextMarker] != null) markerCommands[nextMarker].schedule();
+            nextMarker++;
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return timer.hasElapsed(trajectory.getTotalTime(red));
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerve.stop();
+        if (active == this) active = null;
+    }
+
+    /**
+     * @return The follower that is running, or null.
+     */
+    public static CmdFollowTrajectory getActive() {
+        return active;
+    }
+
+    public double getTargetX() {
+        return state[X];
+    }
+
+    public double getTargetY() {
+        return state[Y];
+    }
+}
@@ -1,6 +1,7 @@
 package frc.team3128.commands;
 
 import static edu.wpi.first.wpilibj2.command.Commands.*;
+import static frc.team3128.Constants.Flags.hasNoNotes;
 import common.hardware.input.NAR_XboxController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.ScheduleCommand;
@@ -10,6 +11,9 @@ import frc.team3128.subsystems.Amper;
 import frc.team3128.subsystems.Hopper;
 import frc.team3128.subsystems.Intake;
 import frc.team3128.subsystems.Shooter;
+import frc.team3128.subsystems.Superstructure;
+import frc.team3128.subsystems.Superstructure.NoteState;
+import frc.team3128.subsystems.Superstructure.Request;
 import frc.team3128.subsystems.Amper.AmpState;
 import frc.team3128.subsystems.Hopper.HopperState;
 import frc.team3128.subsystems.Intake.IntakeState;
@@ -24,6 +28,7 @@ public class CmdManager {
     private static Shooter shooter = Shooter.getInstance();
     private static Amper amper = Amper.getInstance();
     private static Hopper hopper = Hopper.getInstance();
+    private static Superstructure superstructure = Superstructure.getInstance();
     //private static Climber climber = Climber.getInstance();
 
     private static NAR_XboxController controller = RobotContainer.controller;
@@ -32,17 +37,15 @@ public class CmdManager {
         return new ScheduleCommand(new StartEndCommand(()-> controller.startVibrate(), ()-> controller.stopVibrate()).withTimeout(1));
     }
 
+    /**
+     * Shoots the note in the shooter, or every note held when not once.
+     */
     public static Command ramShoot(boolean once) {
         return sequence(
-            amper.setState(AmpState.RETRACTED),
-            intake.setState(IntakeState.RETRACTED),
-            shooter.setState(ShooterState.SHOOT),
-            waitUntil(()-> !shooter.hasObjectPresent()),
-            either(
-                none(),
-                hopper.setState(HopperState.IDLE),
-                ()-> once
-            )
+            superstructure.request(once ? Request.SHOOT : Request.SHOOT_ALL),
+            // a note in the hopper is advanced first, with no notes the request is ignored
+            waitUntil(()-> superstructure.stateIs(NoteState.SHOOTING) || hasNoNotes.getAsBoolean()),
+            waitUntil(()-> !shooter.hasObjectPresent())
         );
     }
 
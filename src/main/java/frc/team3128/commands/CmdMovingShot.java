@@ -0,0 +1,59 @@
+package frc.team3128.commands;
+
+import static frc.team3128.Constants.SwerveConstants.*;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.team3128.subsystems.Swerve;
+import frc.team3128.util.MovingShotSolver;
+
+/**
+ * Keeps the robot pointed at the moving shot solution while the driver keeps translating.
+ */
+public class CmdMovingShot extends Command {
+    private final Swerve swerve;
+    private final MovingShotSolver solver;
+    private final PIDController rController;
+
+    private final DoubleSupplier xAxis;
+    private final DoubleSupplier yAxis;
+
+    public CmdMovingShot(DoubleSupplier xAxis, DoubleSupplier yAxis) {
+        this.swerve = Swerve.getInstance();
+        this.solver = MovingShotSolver.getInstance();
+        this.xAxis = xAxis;
+        this.yAxis = yAxis;
+        addRequirements(swerve);
+
+        rController = new PIDController(turnkP, turnkI, turnkD);
+        rController.setTolerance(TURN_TOLERANCE);
+        rController.enableContinuousInput(-180, 180);
+    }
+
+    @Override
+    public void initialize() {
+        CmdSwerveDrive.disableTurn();
+        rController.reset();
+    }
+
+    @Override
+    public void execute() {
+        solver.update();
+
+        final double speed = swerve.throttle * maxAttainableSpeed;
+        final double x = xAxis.getAsDouble() * speed;
+        final double y = yAxis.getAsDouble() * speed;
+        final double rotationSign = swerve.getRotationSign();
+
+        final double rotation = Units.degreesToRadians(rController.calculate(swerve.getYaw(), solver.getHeading()));
+        swerve.drive(-rotationSign * y, rotationSign * x, rotation, swerve.fieldRelative);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerve.stop();
+    }
+}
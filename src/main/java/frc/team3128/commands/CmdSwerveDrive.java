@@ -5,21 +5,21 @@ import java.util.function.DoubleSupplier;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.team3128.Robot;
 import frc.team3128.subsystems.Swerve;
+import frc.team3128.util.TelemetryPublisher;
+import frc.team3128.util.TelemetryPublisher.Tier;
 import static frc.team3128.Constants.SwerveConstants.*;
 
 public class CmdSwerveDrive extends Command {
     private final Swerve swerve;
 
     private double rotation;
-    private Translation2d translation;
+    private double xVelocity;
+    private double yVelocity;
+    private double xInput;
+    private double yInput;
 
     private final DoubleSupplier xAxis;
     private final DoubleSupplier yAxis;
@@ -44,19 +44,24 @@ public class CmdSwerveDrive extends Command {
         new SlewRateLimiter(maxAcceleration);
         // rController = new PIDController(turnkP, 0, 0);
         swerve.fieldRelative = fieldRelative;
+
+        final TelemetryPublisher telemetry = TelemetryPublisher.getInstance();
+        telemetry.addBoolean("SmartDashboard", "fieldOriented", ()-> swerve.fieldRelative, Tier.SLOW);
+        telemetry.addNumber("SmartDashboard", "yAXIS", ()-> yInput, Tier.MEDIUM);
+        telemetry.addNumber("SmartDashboard", "xAXIS", ()-> xInput, Tier.MEDIUM);
     }
 
     @Override
     public void execute() {
         // deadbands are taken care of in NAR_Joystick
         // TODO: add in slewratelimiter here
-        translation = new Translation2d(xAxis.getAsDouble(), yAxis.getAsDouble()).times(swerve.throttle).times(maxAttainableSpeed);
-        if (Robot.getAlliance() == Alliance.Red || !swerve.fieldRelative) {
-            translation = translation.rotateBy(Rotation2d.fromDegrees(90));
-        }
-        else {
-            translation = translation.rotateBy(Rotation2d.fromDegrees(-90));
-        }
+        final double x = xAxis.getAsDouble();
+        final double y = yAxis.getAsDouble();
+        final double speed = swerve.throttle * maxAttainableSpeed;
+
+        final double rotationSign = swerve.getRotationSign();
+        xVelocity = -rotationSign * y * speed;
+        yVelocity = rotationSign * x * speed;
 
         final double zValue = -zAxis.getAsDouble();
         
@@ -66,7 +71,7 @@ public class CmdSwerveDrive extends Command {
             enabled = false;
         }
         if (enabled) {
-            rotation = Units.degreesToRadians(rController.calculate(swerve.getGyroRotation2d().getDegrees(), rSetpoint));
+            rotation = Units.degreesToRadians(rController.calculate(swerve.getYaw(), rSetpoint));
             if (rController.atSetpoint()) {
                 rotation = 0;
             }
@@ -76,10 +81,9 @@ public class CmdSwerveDrive extends Command {
         // double slowedDist = accelLimiter.calculate(translation.getNorm());
         // translation = new Translation2d(slowedDist, driveAngle);
 
-        SmartDashboard.putBoolean("fieldOriented",swerve.fieldRelative);
-        SmartDashboard.putNumber("yAXIS",yAxis.getAsDouble());
-        SmartDashboard.putNumber("xAXIS",xAxis.getAsDouble());
-        swerve.drive(translation, rotation, swerve.fieldRelative);
+        xInput = x;
+        yInput = y;
+        swerve.drive(xVelocity, yVelocity, rotation, swerve.fieldRelative);
 
     }
 
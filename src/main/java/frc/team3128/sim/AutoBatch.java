@@ -0,0 +1,164 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.AutoConstants.AUTO_DIRECTORY;
+import static frc.team3128.Constants.SimConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.util.GeometryUtil;
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.team3128.Robot;
+import frc.team3128.commands.CmdFollowTrajectory;
+
+/**
+ * Runs autos back to back in the headless simulation, starting each from its starting pose with a preload and notes on
+ * the field, and reports how long each took, when it scored and how far the robot strayed from the path.
+ * <p>
+ * Run with {@code ./gradlew simulateAutos}, or {@code -PsimArgs="--alliance both middle_6note bottom_7note"} for
+ * specific autos. Results are also written to {@code build/sim/autos.csv}.
+ */
+public class AutoBatch {
+
+    // loops to run disabled before each auto so the cache can build it
+    private static final int DISABLED_LOOPS = 25;
+
+    private static class Result {
+        private final String auto;
+        private final Alliance alliance;
+        private double time = Double.NaN;
+        private final ArrayList<Double> scores = new ArrayList<Double>();
+        private double maxError = 0;
+        private double errorSum = 0;
+        private int errorSamples = 0;
+        private double wallTime;
+
+        private Result(String auto, Alliance alliance) {
+            this.auto = auto;
+            this.alliance = alliance;
+        }
+
+        private double getTimePerNote() {
+            return scores.isEmpty() ? Double.NaN : scores.get(scores.size() - 1) / scores.size();
+        }
+
+        private double getMeanError() {
+            return errorSamples == 0 ? 0 : errorSum / errorSamples;
+        }
+
+        private String toCsv() {
+            final StringBuilder times = new StringBuilder();
+            for (final double score : scores) times.append(times.length() == 0 ? "" : " ").append(String.format("%.2f", score));
+            return String.format("%s,%s,%.2f,%d,%.2f,%.3f,%.3f,%s", auto, alliance, time, scores.size(), getTimePerNote(), maxError, getMeanError(), times);
+        }
+    }
+
+    private final HeadlessSim sim;
+    private volatile Pose2d target;
+    private volatile boolean following = false;
+
+    private AutoBatch(HeadlessSim sim) {
+        this.sim = sim;
+        PathPlannerLogging.setLogTargetPoseCallback(pose -> target = pose);
+        PathPlannerLogging.setLogActivePathCallback(path -> following = !path.isEmpty());
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Alliance> alliances = List.of(Alliance.Blue);
+        final ArrayList<String> autos = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].equals("--alliance")) {
+                autos.add(args[i]);
+                continue;
+            }
+            final String alliance = args[++i];
+            alliances = alliance.equals("both") ? List.of(Alliance.Blue, Alliance.Red) : List.of(alliance.equals("red") ? Alliance.Red : Alliance.Blue);
+        }
+        if (autos.isEmpty()) {
+            final String[] files = new File(Filesystem.getDeployDirectory(), AUTO_DIRECTORY).list((dir, name) -> name.endsWith(".auto"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (final String file : files) autos.add(file.substring(0, file.length() - ".auto".length()));
+            }
+        }
+
+        final AutoBatch batch = new AutoBatch(new HeadlessSim());
+        final ArrayList<String> lines = new ArrayList<String>();
+        lines.add("auto,alliance,time,notes,time_per_note,max_error,mean_error,score_times");
+        System.out.println(String.format("%-22s %-5s %7s %6s %9s %10s %10s %8s", "auto", "", "time", "notes", "s/note", "max err", "mean err", "speedup"));
+        for (final Alliance alliance : alliances) {
+            for (final String auto : autos) {
+                final Result result = batch.run(auto, alliance);
+                lines.add(result.toCsv());
+                System.out.println(String.format("%-22s %-5s %7s %6d %9.2f %10.3f %10.3f %7.0fx",
+                    auto, alliance, Double.isNaN(result.time) ? "timeout" : String.format("%.2f", result.time), result.scores.size(),
+                    result.getTimePerNote(), result.maxError, result.getMeanError(), AUTO_LENGTH / result.wallTime));
+            }
+        }
+
+        final File output = new File(SIM_OUTPUT_DIRECTORY, "autos.csv");
+        output.getParentFile().mkdirs();
+        Files.write(output.toPath(), lines);
+        System.out.println("Results: " + output);
+        System.exit(0);
+    }
+
+    private Result run(String auto, Alliance alliance) {
+        final Result result = new Result(auto, alliance);
+        final PhysicsSim physics = sim.getPhysics();
+        final Robot robot = sim.getRobot();
+
+        ScriptedInputs.setMode("disabled");
+        ScriptedInputs.setAlliance(alliance);
+        DriverStationSim.notifyNewData();
+        Robot.autoPrograms.selectAuto(auto);
+        final Pose2d start = PathPlannerAuto.getStaringPoseFromAutoFile(auto);
+        physics.reset(alliance == Alliance.Red ? GeometryUtil.flipFieldPose(start) : start);
+        physics.getNotes().placeFieldNotes();
+        physics.getNotes().preload();
+        for (int i = 0; i < DISABLED_LOOPS; i++) sim.step();
+
+        target = null;
+        following = false;
+        ScriptedInputs.setMode("auto");
+        DriverStationSim.notifyNewData();
+        final double startTime = sim.getTime();
+        final long wallStart = System.nanoTime();
+        while (sim.getTime() - startTime < AUTO_LENGTH) {
+            sim.step();
+            final double time = sim.getTime() - startTime;
+            if (physics.getNotes().getScored() > result.scores.size()) result.scores.add(time);
+
+            final Pose2d pose = physics.getSwerve().getPose();
+            final CmdFollowTrajectory follower = CmdFollowTrajectory.getActive();
+            final Pose2d targetPose = target;
+            double error = Double.NaN;
+            if (follower != null) error = Math.hypot(follower.getTargetX() - pose.getX(), follower.getTargetY() - pose.getY());
+            else if (following && targetPose != null) error = targetPose.getTranslation().getDistance(pose.getTranslation());
+            if (!Double.isNaN(error)) {
+                result.maxError = Math.max(result.maxError, error);
+                result.errorSum += error;
+                result.errorSamples++;
+            }
+
+            final Command command = robot.getAutonomousCommand();
+            if (command == null || !command.isScheduled()) {
+                result.time = time;
+                break;
+            }
+        }
+        result.wallTime = (System.nanoTime() - wallStart) / 1e9;
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.SimConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import common.core.misc.NAR_Robot;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.team3128.Robot;
+
+/**
+ * Runs the robot code without a driver station or GUI, as fast as the code allows, against the physics models in
+ * {@link PhysicsSim}. Inputs come from a script or are replayed from a match log. Writes a timeline of the subsystem
+ * states to {@code build/sim} and optionally compares it against an earlier run.
+ * <p>
+ * Run with {@code ./gradlew simulateHeadless -PsimArgs="--script sim/middle_6note.txt"}.
+ * Options: {@code --script <file>} or {@code --replay <wpilog>}, {@code --duration <seconds>}, {@code --name <name>},
+ * {@code --baseline <timeline csv>}.
+ */
+public class HeadlessSim {
+
+    // runs past the last input so the robot can settle
+    private static final double SETTLE_TIME = 1;
+
+    private final Robot robot;
+    private final PhysicsSim physics;
+    private int loops = 0;
+
+    /**
+     * Starts the HAL with a paused clock and initializes the robot disabled. Only one per process.
+     */
+    public HeadlessSim() {
+        NAR_Robot.logWithAdvantageKit = false;
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        robot = Robot.getInstance();
+        robot.robotInit();
+        robot.simulationInit();
+        physics = PhysicsSim.getInstance();
+        physics.connect();
+    }
+
+    /**
+     * Advances the clock and physics by one period and runs one robot loop.
+     * @return Time the robot loop took, in nanoseconds.
+     */
+    public long step() {
+        SimHooks.stepTiming(SIM_PERIOD);
+        physics.update(SIM_PERIOD);
+        final long start = System.nanoTime();
+        robot.step();
+        loops++;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return Simulated time since the start, in seconds.
+     */
+    public double getTime() {
+        return loops * SIM_PERIOD;
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+
+    public PhysicsSim getPhysics() {
+        return physics;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String script = null;
+        String replay = null;
+        String name = null;
+        String baseline = null;
+        double duration = -1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--script": script = args[i + 1]; break;
+                case "--replay": replay = args[i + 1]; break;
+                case "--duration": duration = Double.parseDouble(args[i + 1]); break;
+                case "--name": name = args[i + 1]; break;
+                case "--baseline": baseline = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if ((script == null) == (replay == null)) throw new IllegalArgumentException("Specify one of --script or --replay");
+        final String source = script != null ? script : replay;
+        if (name == null) name = new File(source).getName().replaceFirst("\\.[^.]*$", "");
+
+        final HeadlessSim sim = new HeadlessSim();
+        final PhysicsSim physics = sim.getPhysics();
+
+        final SimInputs inputs = script != null ? new ScriptedInputs(Paths.get(script)) : new LogReplayInputs(replay);
+        if (duration < 0) duration = inputs.getEndTime() + SETTLE_TIME;
+
+        final SimRecorder recorder = new SimRecorder();
+        final int loops = (int) Math.ceil(duration / SIM_PERIOD);
+        final long wallStart = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            final double time = sim.getTime();
+            inputs.apply(time);
+            recorder.record(time, sim.step(), physics);
+        }
+        final double wallTime = (System.nanoTime() - wallStart) / 1e9;
+
+        final File directory = new File(SIM_OUTPUT_DIRECTORY);
+        directory.mkdirs();
+        final Path timeline = new File(directory, name + ".csv").toPath();
+        recorder.write(timeline);
+
+        final NoteModel notes = physics.getNotes();
+        System.out.println(String.format("%s: %.1f s simulated in %.1f s (%.1fx real time), %d loops",
+            name, loops * SIM_PERIOD, wallTime, loops * SIM_PERIOD / wallTime, recorder.getLoops()));
+        System.out.println(String.format("Loop time ms: p50 %.2f, p99 %.2f, max %.2f, %d over %.0f ms",
+            recorder.getLoopPercentile(50), recorder.getLoopPercentile(99), recorder.getLoopPercentile(100),
+            recorder.getOverruns(), SIM_PERIOD * 1000));
+        System.out.println("Notes: " + notes.getScored() + " scored, " + notes.getOuttaken() + " outtaken, " + notes.getNotesAtIntake() + " left at intake");
+        System.out.println("Timeline: " + timeline);
+        if (baseline != null) System.out.println("Baseline: " + recorder.compare(Paths.get(baseline)));
+
+        // the robot leaves notifiers and vision threads running
+        System.exit(0);
+    }
+}
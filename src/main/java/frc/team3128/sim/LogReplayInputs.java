@@ -0,0 +1,110 @@
+package frc.team3128.sim;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.team3128.Robot;
+
+/**
+ * Driver station inputs replayed from an AdvantageKit log, so a recorded match can be rerun against new code.
+ * Only the driver station table is replayed, everything else comes from the physics models.
+ */
+public class LogReplayInputs extends SimInputs {
+
+    private static final String PREFIX = "DriverStation/";
+    private static final String JOYSTICK_PREFIX = PREFIX + "Joystick";
+
+    private static final AllianceStationID[] STATIONS = {
+        AllianceStationID.Unknown,
+        AllianceStationID.Red1, AllianceStationID.Red2, AllianceStationID.Red3,
+        AllianceStationID.Blue1, AllianceStationID.Blue2, AllianceStationID.Blue3
+    };
+
+    private final boolean[] mode = new boolean[3];
+
+    public LogReplayInputs(String logFile) throws IOException {
+        final DataLogReader reader = new DataLogReader(logFile);
+        if (!reader.isValid()) throw new IOException(logFile + " is not a valid wpilog");
+
+        final HashMap<Integer, String> entries = new HashMap<Integer, String>();
+        long startTime = -1;
+        for (final DataLogRecord record : reader) {
+            if (record.isStart()) {
+                final DataLogRecord.StartRecordData start = record.getStartData();
+                final String name = start.name.startsWith("/") ? start.name.substring(1) : start.name;
+                if (name.startsWith(PREFIX)) entries.put(start.entry, name);
+                continue;
+            }
+            if (record.isControl()) continue;
+            final String name = entries.get(record.getEntry());
+            if (name == null) continue;
+            if (startTime < 0) startTime = record.getTimestamp();
+            add((record.getTimestamp() - startTime) / 1e6, name, record);
+        }
+    }
+
+    private void add(double time, String name, DataLogRecord record) {
+        switch (name) {
+            case PREFIX + "Enabled":
+                setMode(time, 0, record.getBoolean());
+                return;
+            case PREFIX + "Autonomous":
+                setMode(time, 1, record.getBoolean());
+                return;
+            case PREFIX + "Test":
+                setMode(time, 2, record.getBoolean());
+                return;
+            case PREFIX + "AllianceStation":
+                final int station = (int) record.getInteger();
+                at(time, ()-> {
+                    DriverStationSim.setAllianceStationId(STATIONS[Math.max(0, Math.min(STATIONS.length - 1, station))]);
+                    if (station > 0) Robot.alliance = station <= 3 ? Alliance.Red : Alliance.Blue;
+                });
+                return;
+            default:
+                break;
+        }
+        if (!name.startsWith(JOYSTICK_PREFIX)) return;
+
+        final String[] parts = name.substring(JOYSTICK_PREFIX.length()).split("/");
+        if (parts.length != 2) return;
+        final int port = Integer.parseInt(parts[0]);
+        switch (parts[1]) {
+            case "ButtonCount":
+                final int buttonCount = (int) record.getInteger();
+                at(time, ()-> DriverStationSim.setJoystickButtonCount(port, buttonCount));
+                break;
+            case "ButtonValues":
+                final int buttons = (int) record.getInteger();
+                at(time, ()-> DriverStationSim.setJoystickButtons(port, buttons));
+                break;
+            case "AxisValues":
+                final float[] axes = record.getFloatArray();
+                at(time, ()-> {
+                    DriverStationSim.setJoystickAxisCount(port, axes.length);
+                    for (int i = 0; i < axes.length; i++) DriverStationSim.setJoystickAxis(port, i, axes[i]);
+                });
+                break;
+            case "POVs":
+                final long[] povs = record.getIntegerArray();
+                at(time, ()-> {
+                    DriverStationSim.setJoystickPOVCount(port, povs.length);
+                    for (int i = 0; i < povs.length; i++) DriverStationSim.setJoystickPOV(port, i, (int) povs[i]);
+                });
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void setMode(double time, int index, boolean value) {
+        mode[index] = value;
+        final String current = !mode[0] ? "disabled" : mode[1] ? "auto" : mode[2] ? "test" : "teleop";
+        at(time, ()-> ScriptedInputs.setMode(current));
+    }
+}
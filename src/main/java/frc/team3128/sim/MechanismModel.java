@@ -0,0 +1,47 @@
+package frc.team3128.sim;
+
+/**
+ * First order model of a closed loop mechanism, the measurement approaches the setpoint with a time constant
+ * and is limited to a maximum rate.
+ */
+public class MechanismModel {
+
+    private final double timeConstant;
+    private final double maxRate;
+
+    private double value = 0;
+    private double rate = 0;
+
+    public MechanismModel(double timeConstant, double maxRate) {
+        this.timeConstant = timeConstant;
+        this.maxRate = maxRate;
+    }
+
+    public void update(double setpoint, double dt) {
+        rate = Math.max(-maxRate, Math.min(maxRate, (setpoint - value) / timeConstant));
+        // never step past the setpoint when the time step is longer than the time constant
+        final double step = rate * dt;
+        value = Math.abs(step) > Math.abs(setpoint - value) ? setpoint : value + step;
+    }
+
+    public void hold() {
+        rate = 0;
+    }
+
+    public void reset(double value) {
+        this.value = value;
+        rate = 0;
+    }
+
+    public double get() {
+        return value;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public boolean atSetpoint(double setpoint, double tolerance) {
+        return Math.abs(setpoint - value) <= tolerance;
+    }
+}
@@ -0,0 +1,161 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.HopperConstants.HPPR_SENSOR;
+import static frc.team3128.Constants.ShooterConstants.SHTR_SENSOR;
+import static frc.team3128.Constants.SimConstants.*;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+
+/**
+ * Tracks notes through the intake, hopper and shooter from the roller outputs and drives the beam break sensors.
+ * A note moves to the next stage once the rollers on both sides have been running for {@code NOTE_TRANSFER_TIME}.
+ * Notes on the field are picked up when the robot drives over them with the intake running.
+ */
+public class NoteModel {
+
+    private final DIOSim hopperSensor = new DIOSim(HPPR_SENSOR);
+    private final DIOSim shooterSensor = new DIOSim(SHTR_SENSOR);
+    private final boolean[] onField = new boolean[FIELD_NOTES.length];
+
+    private int notesAtIntake = 0;
+    private boolean hopperNote = false;
+    private boolean shooterNote = false;
+
+    private double intakeProgress = 0;
+    private double advanceProgress = 0;
+    private double outtakeProgress = 0;
+    private double exitProgress = 0;
+
+    private int scored = 0;
+    private int outtaken = 0;
+
+    public NoteModel() {
+        writeSensors();
+    }
+
+    /**
+     * Places a note in front of the intake, picked up as soon as the intake is deployed and running.
+     */
+    public void feed() {
+        notesAtIntake++;
+    }
+
+    /**
+     * Puts a note on every starting position on the field.
+     */
+    public void placeFieldNotes() {
+        for (int i = 0; i < onField.length; i++) onField[i] = true;
+    }
+
+    /**
+     * Takes a field note in front of the intake if the robot is over one.
+     * @param position Robot position.
+     * @param intaking Whether the intake is deployed and running.
+     */
+    public void collectFieldNotes(Translation2d position, boolean intaking) {
+        if (!intaking || notesAtIntake > 0) return;
+        for (int i = 0; i < onField.length; i++) {
+            if (onField[i] && position.getDistance(FIELD_NOTES[i]) < NOTE_PICKUP_RADIUS) {
+                onField[i] = false;
+                notesAtIntake++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Empties the robot and clears the field and the counters.
+     */
+    public void reset() {
+        notesAtIntake = 0;
+        hopperNote = false;
+        shooterNote = false;
+        intakeProgress = 0;
+        advanceProgress = 0;
+        outtakeProgress = 0;
+        exitProgress = 0;
+        scored = 0;
+        outtaken = 0;
+        for (int i = 0; i < onField.length; i++) onField[i] = false;
+        writeSensors();
+    }
+
+    /**
+     * Puts a note straight into the shooter, for starting autos preloaded.
+     */
+    public void preload() {
+        shooterNote = true;
+        writeSensors();
+    }
+
+    /**
+     * @param intakeDeployed Whether the intake is down at the intaking angle.
+     * @param intakePower Intake roller output.
+     * @param hopperPower Hopper output.
+     * @param kickPower Kicker output.
+     * @param amperPower Amper roller output.
+     * @param flywheelRpm Flywheel speed.
+     */
+    public void update(double dt, boolean intakeDeployed, double intakePower, double hopperPower, double kickPower, double amperPower, double flywheelRpm) {
+        final boolean intaking = notesAtIntake > 0 && !hopperNote && intakeDeployed && intakePower > ROLLER_THRESHOLD && hopperPower > ROLLER_THRESHOLD;
+        intakeProgress = intaking ? intakeProgress + dt : 0;
+        if (intakeProgress >= NOTE_TRANSFER_TIME) {
+            notesAtIntake--;
+            hopperNote = true;
+            intakeProgress = 0;
+        }
+
+        final boolean advancing = hopperNote && !shooterNote && hopperPower > 0 && kickPower > ROLLER_THRESHOLD;
+        advanceProgress = advancing ? advanceProgress + dt : 0;
+        if (advanceProgress >= NOTE_TRANSFER_TIME) {
+            hopperNote = false;
+            shooterNote = true;
+            advanceProgress = 0;
+        }
+
+        final boolean outtaking = hopperNote && hopperPower < -ROLLER_THRESHOLD;
+        outtakeProgress = outtaking ? outtakeProgress + dt : 0;
+        if (outtakeProgress >= NOTE_TRANSFER_TIME) {
+            hopperNote = false;
+            outtaken++;
+            outtakeProgress = 0;
+        }
+
+        final boolean exiting = shooterNote && kickPower > ROLLER_THRESHOLD && (flywheelRpm > NOTE_EXIT_RPM || amperPower > ROLLER_THRESHOLD);
+        exitProgress = exiting ? exitProgress + dt : 0;
+        if (exitProgress >= NOTE_EXIT_TIME) {
+            shooterNote = false;
+            scored++;
+            exitProgress = 0;
+        }
+
+        writeSensors();
+    }
+
+    private void writeSensors() {
+        // beam breaks read low while blocked
+        hopperSensor.setValue(!hopperNote);
+        shooterSensor.setValue(!shooterNote);
+    }
+
+    public boolean hasHopperNote() {
+        return hopperNote;
+    }
+
+    public boolean hasShooterNote() {
+        return shooterNote;
+    }
+
+    public int getNotesAtIntake() {
+        return notesAtIntake;
+    }
+
+    public int getScored() {
+        return scored;
+    }
+
+    public int getOuttaken() {
+        return outtaken;
+    }
+}
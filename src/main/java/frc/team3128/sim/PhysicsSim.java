@@ -0,0 +1,138 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.AmperConstants.ELEV_VELOCITY_PER_SECOND;
+import static frc.team3128.Constants.SimConstants.*;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.team3128.subsystems.Amper;
+import frc.team3128.subsystems.Intake;
+import frc.team3128.subsystems.Shooter;
+import frc.team3128.subsystems.Swerve;
+import frc.team3128.subsystems.Intake.IntakeState;
+import frc.team3128.util.MechanismIO;
+import frc.team3128.util.MotorOutputs;
+import frc.team3128.util.OdometryThread;
+
+/**
+ * Physics for the headless simulation. Steps a model of every subsystem from what the code commanded in the last loop
+ * and feeds the results back as odometry, beam breaks and mechanism measurements.
+ * <p>
+ * {@link #connect()} hands the models to the subsystems as their {@link MechanismIO} and takes over odometry, so the
+ * subsystems run their robot code against the models.
+ */
+public class PhysicsSim {
+
+    private static PhysicsSim instance;
+
+    private final SwerveModel swerve = new SwerveModel();
+    private final MechanismModel flywheel = new MechanismModel(FLYWHEEL_TIME_CONSTANT, FLYWHEEL_MAX_ACCELERATION);
+    private final PivotModel pivot = new PivotModel();
+    private final MechanismModel elevator = new MechanismModel(ELEVATOR_TIME_CONSTANT, ELEVATOR_MAX_RATE);
+    private final NoteModel notes = new NoteModel();
+    private final ChassisSpeeds stopped = new ChassisSpeeds();
+
+    private int intakeChannel = -1;
+    private int hopperChannel = -1;
+    private int kickChannel = -1;
+    private int amperChannel = -1;
+    private int resets = 0;
+
+    public static synchronized PhysicsSim getInstance() {
+        if (instance == null) {
+            instance = new PhysicsSim();
+        }
+        return instance;
+    }
+
+    private PhysicsSim() {}
+
+    /**
+     * Points the subsystems at the models. Call once the robot is initialized, before the first update.
+     */
+    public void connect() {
+        final MotorOutputs outputs = MotorOutputs.getInstance();
+        intakeChannel = outputs.getChannel("Intake Rollers");
+        hopperChannel = outputs.getChannel("Hopper");
+        kickChannel = outputs.getChannel("Kicker");
+        amperChannel = outputs.getChannel("Amper Rollers");
+
+        Shooter.getInstance().setIO(MechanismIO.of(()-> 0, flywheel::get));
+        Intake.getInstance().setIO(MechanismIO.of(pivot::get, pivot::getRate));
+        // the Spark reports elevator velocity per minute
+        Amper.getInstance().setIO(MechanismIO.of(elevator::get, ()-> elevator.getRate() / ELEV_VELOCITY_PER_SECOND));
+
+        final OdometryThread odometry = Swerve.getInstance().getOdometry();
+        odometry.stopEstimating();
+        resets = odometry.getResets();
+    }
+
+    private static double output(int channel) {
+        return channel == -1 || DriverStation.isDisabled() ? 0 : MotorOutputs.getInstance().getLastSent(channel);
+    }
+
+    public void update(double dt) {
+        final boolean disabled = DriverStation.isDisabled();
+        final Swerve drivetrain = Swerve.getInstance();
+        final OdometryThread odometry = drivetrain.getOdometry();
+        // the code resetting odometry places the modeled robot there too
+        if (odometry.getResets() != resets) {
+            resets = odometry.getResets();
+            swerve.reset(odometry.getPose());
+        }
+        swerve.update(disabled ? stopped : drivetrain.getCommandedSpeeds(), dt);
+        odometry.injectPose(Timer.getFPGATimestamp(), swerve.getOdometryPose(), swerve.getYaw());
+
+        flywheel.update(disabled ? 0 : Shooter.getInstance().getSetpoint(), dt);
+        if (disabled) {
+            pivot.hold();
+            elevator.hold();
+        }
+        else {
+            pivot.update(Intake.getInstance().getSetpoint(), Intake.getInstance().getFeedforward(), dt);
+            elevator.update(Amper.getInstance().getSetpoint(), dt);
+        }
+
+        final boolean intakeDeployed = Math.abs(pivot.get() - IntakeState.INTAKE.getAngle()) < INTAKE_DEPLOYED_TOLERANCE;
+        notes.collectFieldNotes(swerve.getPose().getTranslation(), intakeDeployed && output(intakeChannel) > ROLLER_THRESHOLD);
+        notes.update(dt, intakeDeployed, output(intakeChannel), output(hopperChannel), output(kickChannel), output(amperChannel), flywheel.get());
+    }
+
+    public void resetPose(Pose2d pose) {
+        swerve.reset(pose);
+        Swerve.getInstance().getOdometry().injectPose(Timer.getFPGATimestamp(), pose, swerve.getYaw());
+    }
+
+    /**
+     * Puts every mechanism back to its starting position and empties the robot, for running several matches in one process.
+     */
+    public void reset(Pose2d pose) {
+        resetPose(pose);
+        flywheel.reset(0);
+        pivot.reset(0);
+        elevator.reset(0);
+        notes.reset();
+    }
+
+    public SwerveModel getSwerve() {
+        return swerve;
+    }
+
+    public MechanismModel getFlywheel() {
+        return flywheel;
+    }
+
+    public PivotModel getPivot() {
+        return pivot;
+    }
+
+    public MechanismModel getElevator() {
+        return elevator;
+    }
+
+    public NoteModel getNotes() {
+        return notes;
+    }
+}
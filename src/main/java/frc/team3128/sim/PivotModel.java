@@ -0,0 +1,88 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.IntakeConstants.*;
+import static frc.team3128.Constants.SimConstants.PIVOT_SUBSTEPS;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Arm model of the intake pivot: a NEO through {@code PIVT_GEAR_RATIO} driving {@code PIVT_MOI} against gravity, with
+ * the current limit, back EMF and friction. Gravity and friction are sized so {@code PIVT_kG} and {@code PIVT_kS}
+ * exactly cancel them.
+ * <p>
+ * The voltage is the intake's controller output, the proportional term plus the feedforward, held for the whole loop
+ * like it is on the roboRIO. Angles are in degrees.
+ */
+public class PivotModel {
+
+    public static final double BATTERY_VOLTAGE = 12;
+
+    private double angle = 0;
+    private double velocity = 0;
+    private double voltage = 0;
+    private double current = 0;
+
+    public void update(double setpoint, double feedforward, double dt) {
+        final double error = setpoint - angle;
+        voltage = MathUtil.clamp(PIVT_kP * error + Math.signum(error) * PIVT_kS + feedforward, -BATTERY_VOLTAGE, BATTERY_VOLTAGE);
+
+        final double step = dt / PIVOT_SUBSTEPS;
+        for (int i = 0; i < PIVOT_SUBSTEPS; i++) {
+            final double motorSpeed = Units.degreesToRadians(velocity) / PIVT_GEAR_RATIO;
+            current = MathUtil.clamp((voltage - motorSpeed / PIVT_GEARBOX.KvRadPerSecPerVolt) / PIVT_GEARBOX.rOhms, -PIVT_CURRENT_LIMIT, PIVT_CURRENT_LIMIT);
+            final double torque = PIVT_GEARBOX.KtNMPerAmp * current / PIVT_GEAR_RATIO;
+            final double gravity = getTorque(PIVT_kG) * Math.cos(Units.degreesToRadians(angle));
+            double friction = getTorque(PIVT_kS) * Math.signum(velocity);
+            // static friction holds the pivot until the other torques overcome it
+            if (velocity == 0 && Math.abs(torque - gravity) <= getTorque(PIVT_kS)) friction = torque - gravity;
+
+            final double previous = velocity;
+            velocity += Units.radiansToDegrees((torque - gravity - friction) / PIVT_MOI) * step;
+            if (previous != 0 && Math.signum(velocity) != Math.signum(previous)) velocity = 0;
+            angle += velocity * step;
+            if (angle < POSITION_MIN) {
+                angle = POSITION_MIN;
+                velocity = Math.max(0, velocity);
+            }
+        }
+    }
+
+    /**
+     * @return Torque at the pivot from a voltage across the stalled motor.
+     */
+    private static double getTorque(double volts) {
+        return PIVT_GEARBOX.KtNMPerAmp * volts / PIVT_GEARBOX.rOhms / PIVT_GEAR_RATIO;
+    }
+
+    public void hold() {
+        velocity = 0;
+        voltage = 0;
+        current = 0;
+    }
+
+    public void reset(double angle) {
+        this.angle = angle;
+        hold();
+    }
+
+    public double get() {
+        return angle;
+    }
+
+    public double getRate() {
+        return velocity;
+    }
+
+    public double getVoltage() {
+        return voltage;
+    }
+
+    public double getCurrent() {
+        return current;
+    }
+
+    public boolean atSetpoint(double setpoint, double tolerance) {
+        return Math.abs(setpoint - angle) <= tolerance;
+    }
+}
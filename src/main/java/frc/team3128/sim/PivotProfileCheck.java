@@ -0,0 +1,105 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.IntakeConstants.*;
+import static frc.team3128.Constants.SimConstants.SIM_PERIOD;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import frc.team3128.subsystems.Intake;
+import frc.team3128.subsystems.Intake.IntakeState;
+import frc.team3128.util.JerkLimitedProfile;
+
+/**
+ * Checks the intake pivot profile against the {@link PivotModel} at the real gear ratio. Every move between intake
+ * states is run once stepping the setpoint like before and once following the profile with its feedforward, and the
+ * time to settle, the tracking error and the peak voltage and current are reported.
+ * <p>
+ * Run with {@code ./gradlew checkPivotProfile}, or {@code -PsimArgs="<velocity> <acceleration> <jerk>"} to try other
+ * limits. Exits with an error if a profiled move does not settle or saturates the motor.
+ */
+public class PivotProfileCheck {
+
+    // time a move has to stay in tolerance to count as settled
+    private static final double SETTLE_TIME = 0.1;
+    private static final double TIMEOUT = 3;
+
+    private static class Result {
+        private double settleTime = Double.NaN;
+        private double maxError = 0;
+        private double peakVoltage = 0;
+        private double peakCurrent = 0;
+        // distance from the goal when the rollers start
+        private double rollerError = Double.NaN;
+    }
+
+    public static void main(String[] args) {
+        // the intake constants construct motor controllers
+        HAL.initialize(500, 0);
+        final JerkLimitedProfile profile = args.length >= 3
+            ? new JerkLimitedProfile(Double.parseDouble(args[0]), Double.parseDouble(args[1]), Double.parseDouble(args[2]))
+            : new JerkLimitedProfile(PROFILE_MAX_VELOCITY, PROFILE_MAX_ACCELERATION, PROFILE_MAX_JERK);
+        System.out.printf("Gear ratio 1:%.0f, limits %.0f deg/s, %.0f deg/s^2, %.0f deg/s^3%n",
+            1 / PIVT_GEAR_RATIO, profile.getMaxVelocity(), profile.getMaxAcceleration(), profile.getMaxJerk());
+        System.out.println("move,planned,step settle,profiled settle,max error,peak volts,peak amps,error at rollers");
+
+        boolean passed = true;
+        for (final IntakeState from : IntakeState.values()) {
+            for (final IntakeState to : IntakeState.values()) {
+                final double start = clamp(from.getAngle());
+                final double goal = clamp(to.getAngle());
+                if (start == goal) continue;
+                profile.plan(start, goal);
+                final Result step = run(start, goal, null);
+                final Result profiled = run(start, goal, profile);
+                System.out.printf("%s->%s,%.3f,%.3f,%.3f,%.2f,%.1f,%.1f,%.2f%n", from, to, profile.getTotalTime(), step.settleTime,
+                    profiled.settleTime, profiled.maxError, profiled.peakVoltage, profiled.peakCurrent, profiled.rollerError);
+                if (Double.isNaN(profiled.settleTime) || profiled.peakVoltage >= PivotModel.BATTERY_VOLTAGE) passed = false;
+            }
+        }
+        if (!passed) {
+            System.out.println("Profile does not fit the pivot, lower the limits");
+            System.exit(1);
+        }
+    }
+
+    private static double clamp(double angle) {
+        return MathUtil.clamp(angle, POSITION_MIN, POSITION_MAX);
+    }
+
+    /**
+     * Runs one move at the loop rate, with the profile or stepping straight to the goal when it is null.
+     */
+    private static Result run(double start, double goal, JerkLimitedProfile profile) {
+        final PivotModel pivot = new PivotModel();
+        pivot.reset(start);
+        // settle from rest at the start first, like the pivot waiting there
+        for (int i = 0; i < 50; i++) pivot.update(start, Intake.getFeedforward(start, 0, 0), SIM_PERIOD);
+
+        final Result result = new Result();
+        double settledSince = Double.NaN;
+        for (double time = 0; time < TIMEOUT; time += SIM_PERIOD) {
+            double setpoint = goal;
+            double feedforward = Intake.getFeedforward(goal, 0, 0);
+            if (profile != null) {
+                profile.sample(time);
+                setpoint = profile.getPosition();
+                feedforward = Intake.getFeedforward(setpoint, profile.getVelocity(), profile.getAcceleration());
+                result.maxError = Math.max(result.maxError, Math.abs(setpoint - pivot.get()));
+                if (Double.isNaN(result.rollerError) && profile.getTotalTime() - time <= ROLLER_SPINUP_TIME) {
+                    result.rollerError = Math.abs(goal - pivot.get());
+                }
+            }
+            pivot.update(setpoint, feedforward, SIM_PERIOD);
+            result.peakVoltage = Math.max(result.peakVoltage, Math.abs(pivot.getVoltage()));
+            result.peakCurrent = Math.max(result.peakCurrent, Math.abs(pivot.getCurrent()));
+
+            if (!pivot.atSetpoint(goal, POSITION_TOLERANCE)) settledSince = Double.NaN;
+            else if (Double.isNaN(settledSince)) settledSince = time + SIM_PERIOD;
+            else if (time + SIM_PERIOD - settledSince >= SETTLE_TIME) {
+                result.settleTime = settledSince;
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+package frc.team3128.sim;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.team3128.Robot;
+import frc.team3128.subsystems.Swerve;
+
+/**
+ * Driver inputs read from a script, one input per line as {@code <time> <command> <args>}, {@code #} starts a comment.
+ * <pre>
+ * 0    alliance red
+ * 0    auto middle_6note
+ * 0    preload
+ * 1    mode auto
+ * 16   mode teleop
+ * 16.5 axis 0 1 -0.8         # port, axis, value
+ * 17   button 0 6 1          # port, button (1 indexed), pressed
+ * 17   pov 0 0 90            # port, pov, angle
+ * 18   note                  # a note in front of the intake
+ * 18   fieldnotes            # notes on every starting position, picked up by driving over them
+ * 20   pose 2 5.5 180        # reset the modeled pose
+ * 150  end
+ * </pre>
+ */
+public class ScriptedInputs extends SimInputs {
+
+    public static final int AXIS_COUNT = 6;
+    public static final int BUTTON_COUNT = 12;
+    public static final int POV_COUNT = 1;
+
+    public ScriptedInputs(Path script) throws IOException {
+        final List<String> lines = Files.readAllLines(script);
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i).replaceAll("#.*", "").trim();
+            if (line.isEmpty()) continue;
+            try {
+                parse(line.split("\\s+"));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(script + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void parse(String[] args) {
+        final double time = Double.parseDouble(args[0]);
+        switch (args[1]) {
+            case "mode":
+                final String mode = args[2];
+                at(time, ()-> setMode(mode));
+                break;
+            case "alliance":
+                final Alliance alliance = args[2].equalsIgnoreCase("red") ? Alliance.Red : Alliance.Blue;
+                at(time, ()-> setAlliance(alliance));
+                break;
+            case "axis":
+                final int axisPort = Integer.parseInt(args[2]);
+                final int axis = Integer.parseInt(args[3]);
+                final double value = Double.parseDouble(args[4]);
+                at(time, ()-> {
+                    initJoystick(axisPort);
+                    DriverStationSim.setJoystickAxis(axisPort, axis, value);
+                });
+                break;
+            case "button":
+                final int buttonPort = Integer.parseInt(args[2]);
+                final int button = Integer.parseInt(args[3]);
+                final boolean pressed = !args[4].equals("0");
+                at(time, ()-> {
+                    initJoystick(buttonPort);
+                    DriverStationSim.setJoystickButton(buttonPort, button, pressed);
+                });
+                break;
+            case "pov":
+                final int povPort = Integer.parseInt(args[2]);
+                final int pov = Integer.parseInt(args[3]);
+                final int angle = Integer.parseInt(args[4]);
+                at(time, ()-> {
+                    initJoystick(povPort);
+                    DriverStationSim.setJoystickPOV(povPort, pov, angle);
+                });
+                break;
+            case "auto":
+                final String auto = args[2];
+                at(time, ()-> Robot.autoPrograms.selectAuto(auto));
+                break;
+            case "note":
+                at(time, ()-> PhysicsSim.getInstance().getNotes().feed());
+                break;
+            case "fieldnotes":
+                at(time, ()-> PhysicsSim.getInstance().getNotes().placeFieldNotes());
+                break;
+            case "preload":
+                at(time, ()-> PhysicsSim.getInstance().getNotes().preload());
+                break;
+            case "pose":
+                final Pose2d pose = new Pose2d(Double.parseDouble(args[2]), Double.parseDouble(args[3]), Rotation2d.fromDegrees(Double.parseDouble(args[4])));
+                at(time, ()-> Swerve.getInstance().resetOdometry(pose));
+                break;
+            case "end":
+                at(time, ()-> {});
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[1]);
+        }
+    }
+
+    static void setMode(String mode) {
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(!mode.equals("disabled"));
+        DriverStationSim.setAutonomous(mode.equals("auto"));
+        DriverStationSim.setTest(mode.equals("test"));
+    }
+
+    static void setAlliance(Alliance alliance) {
+        DriverStationSim.setAllianceStationId(alliance == Alliance.Red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+        Robot.alliance = alliance;
+    }
+
+    private static void initJoystick(int port) {
+        DriverStationSim.setJoystickAxisCount(port, AXIS_COUNT);
+        DriverStationSim.setJoystickButtonCount(port, BUTTON_COUNT);
+        DriverStationSim.setJoystickPOVCount(port, POV_COUNT);
+    }
+}
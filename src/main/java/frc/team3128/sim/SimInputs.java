@@ -0,0 +1,54 @@
+package frc.team3128.sim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * Timeline of driver station inputs for the headless simulation, applied to the simulated driver station as time passes.
+ */
+public abstract class SimInputs {
+
+    private static class Event {
+        private final double time;
+        private final Runnable action;
+
+        private Event(double time, Runnable action) {
+            this.time = time;
+            this.action = action;
+        }
+    }
+
+    private final ArrayList<Event> events = new ArrayList<Event>();
+    private int next = 0;
+    private boolean sorted = false;
+
+    protected void at(double time, Runnable action) {
+        events.add(new Event(time, action));
+        sorted = false;
+    }
+
+    /**
+     * Applies every input due by a time and publishes them to the robot.
+     * @return False once every input has been applied.
+     */
+    public boolean apply(double time) {
+        if (!sorted) {
+            // stable so inputs at the same time keep their order
+            events.sort(Comparator.comparingDouble(event -> event.time));
+            sorted = true;
+        }
+        boolean changed = false;
+        while (next < events.size() && events.get(next).time <= time) {
+            events.get(next++).action.run();
+            changed = true;
+        }
+        if (changed) DriverStationSim.notifyNewData();
+        return next < events.size();
+    }
+
+    public double getEndTime() {
+        return events.isEmpty() ? 0 : events.stream().mapToDouble(event -> event.time).max().getAsDouble();
+    }
+}
@@ -0,0 +1,118 @@
+package frc.team3128.sim;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.team3128.subsystems.Amper;
+import frc.team3128.subsystems.Hopper;
+import frc.team3128.subsystems.Intake;
+import frc.team3128.subsystems.Shooter;
+
+/**
+ * Records the state timeline and loop times of a headless run, and compares timelines between runs.
+ */
+public class SimRecorder {
+
+    public static final String HEADER = "time,mode,loop_ms,x,y,heading,shooter,intake,hopper,amper,flywheel,pivot,elevator,hopper_note,shooter_note,scored";
+    // columns compared exactly between runs, the rest are compared with POSITION_TOLERANCE
+    private static final int[] STATE_COLUMNS = {1, 6, 7, 8, 9, 13, 14, 15};
+    private static final int[] POSITION_COLUMNS = {3, 4};
+    private static final double POSITION_TOLERANCE = 0.05;
+    private static final double LOOP_PERIOD_MS = 20;
+
+    private final ArrayList<String> rows = new ArrayList<String>();
+    private double[] loopTimes = new double[1024];
+    private int loops = 0;
+
+    public void record(double time, long loopNanos, PhysicsSim physics) {
+        final double loopMs = loopNanos / 1e6;
+        if (loops == loopTimes.length) loopTimes = Arrays.copyOf(loopTimes, loops * 2);
+        loopTimes[loops++] = loopMs;
+
+        final Pose2d pose = physics.getSwerve().getPose();
+        final NoteModel notes = physics.getNotes();
+        rows.add(String.format("%.2f,%s,%.3f,%.3f,%.3f,%.1f,%s,%s,%s,%s,%.0f,%.2f,%.2f,%b,%b,%d",
+            time, mode(), loopMs, pose.getX(), pose.getY(), pose.getRotation().getDegrees(),
+            Shooter.getActiveState(), Intake.getGoalState(), Hopper.getGoalState(), Amper.getGoalState(),
+            physics.getFlywheel().get(), physics.getPivot().get(), physics.getElevator().get(),
+            notes.hasHopperNote(), notes.hasShooterNote(), notes.getScored()));
+    }
+
+    private static String mode() {
+        if (DriverStation.isDisabled()) return "disabled";
+        if (DriverStation.isAutonomous()) return "auto";
+        if (DriverStation.isTest()) return "test";
+        return "teleop";
+    }
+
+    public void write(Path file) throws IOException {
+        final ArrayList<String> lines = new ArrayList<String>(rows.size() + 1);
+        lines.add(HEADER);
+        lines.addAll(rows);
+        Files.write(file, lines);
+    }
+
+    public double getLoopPercentile(double percentile) {
+        if (loops == 0) return 0;
+        final double[] sorted = Arrays.copyOf(loopTimes, loops);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int) Math.ceil(percentile / 100 * loops) - 1)];
+    }
+
+    public int getOverruns() {
+        int overruns = 0;
+        for (int i = 0; i < loops; i++) {
+            if (loopTimes[i] > LOOP_PERIOD_MS) overruns++;
+        }
+        return overruns;
+    }
+
+    public int getLoops() {
+        return loops;
+    }
+
+    /**
+     * Compares this run against a timeline written by an earlier run.
+     * @return Description of where the runs diverge.
+     */
+    public String compare(Path baseline) throws IOException {
+        final List<String> lines = Files.readAllLines(baseline);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) return baseline + " is not a timeline from this version";
+
+        int differing = 0;
+        String first = null;
+        final int count = Math.min(rows.size(), lines.size() - 1);
+        for (int i = 0; i < count; i++) {
+            final String[] actual = rows.get(i).split(",");
+            final String[] expected = lines.get(i + 1).split(",");
+            final String difference = difference(actual, expected);
+            if (difference == null) continue;
+            differing++;
+            if (first == null) first = "first at " + actual[0] + " s: " + difference;
+        }
+        if (rows.size() != lines.size() - 1) {
+            differing += Math.abs(rows.size() - (lines.size() - 1));
+            if (first == null) first = "run lengths differ, " + rows.size() + " loops against " + (lines.size() - 1);
+        }
+        return differing == 0 ? "matches " + baseline : differing + " of " + rows.size() + " loops differ from " + baseline + ", " + first;
+    }
+
+    private static String difference(String[] actual, String[] expected) {
+        final String[] names = HEADER.split(",");
+        for (final int column : STATE_COLUMNS) {
+            if (!actual[column].equals(expected[column])) return names[column] + " " + actual[column] + " != " + expected[column];
+        }
+        for (final int column : POSITION_COLUMNS) {
+            if (Math.abs(Double.parseDouble(actual[column]) - Double.parseDouble(expected[column])) > POSITION_TOLERANCE) {
+                return names[column] + " " + actual[column] + " != " + expected[column];
+            }
+        }
+        return null;
+    }
+}
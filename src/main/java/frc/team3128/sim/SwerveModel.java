@@ -0,0 +1,204 @@
+package frc.team3128.sim;
+
+import static frc.team3128.Constants.SimConstants.*;
+import static frc.team3128.Constants.SwerveConstants.*;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Drivetrain model with the four modules simulated separately. Each drive motor follows the characterized
+ * {@code driveKS/KV/KA} plant, limited by the stator current limit, and pushes on the carpet through a friction circle
+ * so wheels can spin out or slide sideways. Steering is a rate limited first order lag.
+ * <p>
+ * The encoders see the wheel surface, so {@link #getOdometryPose()} drifts from the true {@link #getPose()} when wheels slip.
+ */
+public class SwerveModel {
+
+    private static final int MODULES = 4;
+    private static final double MODULE_MASS = ROBOT_MASS / MODULES;
+    private static final double MODULE_WEIGHT = MODULE_MASS * 9.81;
+    private static final double MAX_VOLTAGE = 12;
+    private static final double MAX_DRIVE_FORCE = driveLimit * DRIVE_MOTOR.KtNMPerAmp * driveGearRatio / (wheelDiameter / 2);
+    // same order as swerveKinematics
+    private static final double[] MODULE_X = {wheelBase / 2, wheelBase / 2, -wheelBase / 2, -wheelBase / 2};
+    private static final double[] MODULE_Y = {trackWidth / 2, -trackWidth / 2, trackWidth / 2, -trackWidth / 2};
+
+    private double x = 0;
+    private double y = 0;
+    private double heading = 0;
+    private double vx = 0;
+    private double vy = 0;
+    private double omega = 0;
+
+    private final double[] targetSpeed = new double[MODULES];
+    private final double[] targetAngle = new double[MODULES];
+    private final double[] angle = new double[MODULES];
+    private final double[] wheelSpeed = new double[MODULES];
+    private final double[] wheelDistance = new double[MODULES];
+    private final boolean[] slipping = new boolean[MODULES];
+    private final double[] longitudinal = new double[MODULES];
+    private final double[] lateral = new double[MODULES];
+
+    private final SwerveDriveOdometry odometry = new SwerveDriveOdometry(swerveKinematics, new Rotation2d(), getPositions());
+
+    public void update(ChassisSpeeds commanded, double dt) {
+        final SwerveModuleState[] states = swerveKinematics.toSwerveModuleStates(commanded);
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, maxAttainableSpeed);
+        for (int i = 0; i < MODULES; i++) {
+            final SwerveModuleState state = SwerveModuleState.optimize(states[i], new Rotation2d(angle[i]));
+            targetSpeed[i] = state.speedMetersPerSecond;
+            // modules hold their angle when stopped instead of snapping back to zero
+            if (Math.abs(state.speedMetersPerSecond) > maxAttainableSpeed * 0.01) targetAngle[i] = state.angle.getRadians();
+        }
+
+        final double step = dt / DRIVE_SUBSTEPS;
+        for (int i = 0; i < DRIVE_SUBSTEPS; i++) {
+            substep(step);
+        }
+        odometry.update(new Rotation2d(heading), getPositions());
+    }
+
+    private void substep(double dt) {
+        final double cos = Math.cos(heading);
+        final double sin = Math.sin(heading);
+        final double robotVx = vx * cos + vy * sin;
+        final double robotVy = -vx * sin + vy * cos;
+        double forceX = 0;
+        double forceY = 0;
+        double torque = 0;
+
+        for (int i = 0; i < MODULES; i++) {
+            final double error = Math.IEEEremainder(targetAngle[i] - angle[i], 2 * Math.PI);
+            angle[i] += clamp(error * Math.min(1, dt / STEER_TIME_CONSTANT), Math.toRadians(STEER_MAX_RATE) * dt);
+            final double moduleCos = Math.cos(angle[i]);
+            final double moduleSin = Math.sin(angle[i]);
+
+            // velocity of the contact patch over the carpet, along and across the wheel
+            final double moduleVx = robotVx - omega * MODULE_Y[i];
+            final double moduleVy = robotVy + omega * MODULE_X[i];
+            final double rolling = moduleVx * moduleCos + moduleVy * moduleSin;
+            final double sliding = -moduleVx * moduleSin + moduleVy * moduleCos;
+
+            final double driveForce = driveForce(i);
+            if (slipping[i]) {
+                final double slipSpeed = Math.hypot(wheelSpeed[i] - rolling, sliding);
+                if (slipSpeed < WHEEL_REGRIP_SPEED) slipping[i] = false;
+                else {
+                    final double friction = WHEEL_KINETIC_COF * MODULE_WEIGHT / slipSpeed;
+                    longitudinal[i] = friction * (wheelSpeed[i] - rolling);
+                    lateral[i] = -friction * sliding;
+                    wheelSpeed[i] += (driveForce - longitudinal[i]) / DRIVE_REFLECTED_MASS * dt;
+                }
+            }
+            if (!slipping[i]) {
+                longitudinal[i] = driveForce;
+                lateral[i] = -MODULE_MASS * sliding / dt;
+                final double total = Math.hypot(longitudinal[i], lateral[i]);
+                if (total > WHEEL_COF * MODULE_WEIGHT) {
+                    slipping[i] = true;
+                    longitudinal[i] *= WHEEL_COF * MODULE_WEIGHT / total;
+                    lateral[i] *= WHEEL_COF * MODULE_WEIGHT / total;
+                }
+            }
+
+            final double moduleForceX = longitudinal[i] * moduleCos - lateral[i] * moduleSin;
+            final double moduleForceY = longitudinal[i] * moduleSin + lateral[i] * moduleCos;
+            forceX += moduleForceX;
+            forceY += moduleForceY;
+            torque += MODULE_X[i] * moduleForceY - MODULE_Y[i] * moduleForceX;
+        }
+
+        vx += (forceX * cos - forceY * sin) / ROBOT_MASS * dt;
+        vy += (forceX * sin + forceY * cos) / ROBOT_MASS * dt;
+        omega += torque / ROBOT_MOI * dt;
+        x += vx * dt;
+        y += vy * dt;
+        heading += omega * dt;
+
+        final double newCos = Math.cos(heading);
+        final double newSin = Math.sin(heading);
+        final double newVx = vx * newCos + vy * newSin;
+        final double newVy = -vx * newSin + vy * newCos;
+        for (int i = 0; i < MODULES; i++) {
+            // a gripping wheel turns with the carpet
+            if (!slipping[i]) {
+                wheelSpeed[i] = (newVx - omega * MODULE_Y[i]) * Math.cos(angle[i]) + (newVy + omega * MODULE_X[i]) * Math.sin(angle[i]);
+            }
+            wheelDistance[i] += wheelSpeed[i] * dt;
+        }
+    }
+
+    /**
+     * Velocity control with the characterized feedforward, run through the same plant and capped by the current limit.
+     */
+    private double driveForce(int module) {
+        final double target = targetSpeed[module];
+        final double speed = wheelSpeed[module];
+        final double volts = clamp(driveKS * Math.signum(target) + driveKV * target, MAX_VOLTAGE);
+        // static friction holds a stopped wheel until the voltage overcomes it
+        if (Math.abs(speed) < 0.01 && Math.abs(volts) < driveKS) return 0;
+        final double force = MODULE_MASS * (volts - driveKS * Math.signum(speed) - driveKV * speed) / driveKA;
+        return clamp(force, MAX_DRIVE_FORCE);
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    private SwerveModulePosition[] getPositions() {
+        final SwerveModulePosition[] positions = new SwerveModulePosition[MODULES];
+        for (int i = 0; i < MODULES; i++) {
+            positions[i] = new SwerveModulePosition(wheelDistance[i], new Rotation2d(angle[i]));
+        }
+        return positions;
+    }
+
+    public void reset(Pose2d pose) {
+        x = pose.getX();
+        y = pose.getY();
+        heading = pose.getRotation().getRadians();
+        vx = 0;
+        vy = 0;
+        omega = 0;
+        for (int i = 0; i < MODULES; i++) {
+            wheelSpeed[i] = 0;
+            slipping[i] = false;
+        }
+        odometry.resetPosition(pose.getRotation(), getPositions(), pose);
+    }
+
+    /**
+     * @return Where the robot actually is.
+     */
+    public Pose2d getPose() {
+        return new Pose2d(x, y, new Rotation2d(heading));
+    }
+
+    /**
+     * @return Pose integrated from the wheel encoders and gyro, what the robot's odometry would read.
+     */
+    public Pose2d getOdometryPose() {
+        return odometry.getPoseMeters();
+    }
+
+    /**
+     * @return Heading in degrees, what the gyro reads.
+     */
+    public double getYaw() {
+        return Math.toDegrees(heading);
+    }
+
+    public double getSpeed() {
+        return Math.hypot(vx, vy);
+    }
+
+    public boolean isSlipping(int module) {
+        return slipping[module];
+    }
+}
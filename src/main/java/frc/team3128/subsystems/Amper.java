@@ -3,14 +3,22 @@ package frc.team3128.subsystems;
 import static frc.team3128.Constants.AmperConstants.*;
 import static frc.team3128.Constants.Flags.*;
 
+import java.util.EnumMap;
+
 import common.core.subsystems.ElevatorTemplate;
 import common.hardware.motorcontroller.NAR_Motor.Control;
-import common.utility.shuffleboard.NAR_Shuffleboard;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.button.Trigger;
-import frc.team3128.subsystems.Shooter.ShooterState;
+import frc.team3128.util.ArrivalPredictor;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MechanismIO;
+import frc.team3128.util.MotorOutputs;
+import frc.team3128.util.TelemetryPublisher;
+import frc.team3128.util.TelemetryPublisher.Tier;
 
 import static edu.wpi.first.wpilibj2.command.Commands.sequence;
+import static edu.wpi.first.wpilibj2.command.Commands.waitUntil;
 
 public class Amper extends ElevatorTemplate {
     
@@ -40,6 +48,20 @@ public class Amper extends ElevatorTemplate {
     private static Amper instance;
     private static AmpState goalState;
 
+    private final EnumMap<AmpState, Command> stateCommands = new EnumMap<AmpState, Command>(AmpState.class);
+
+    private final int rollerChannel = MotorOutputs.getInstance().register("Amper Rollers", ROLLER_MOTOR);
+    private final int periodicPhase = LoopProfiler.getInstance().register(getName() + ".periodic");
+
+    private MechanismIO io = MechanismIO.of(ELEV_MOTOR);
+
+    private final ArrivalPredictor predictor = new ArrivalPredictor(ELEV_kP, ELEV_kS, ARRIVAL_kV, ARRIVAL_kA, ELEV_kG, ELEV_MAX_VELOCITY, ARRIVAL_PERIOD, ARRIVAL_HORIZON);
+    private double timeToSetpoint = 0;
+    // the move being timed to correct the predictor
+    private double moveSetpoint = Double.NaN;
+    private double moveStart = 0;
+    private double movePrediction = 0;
+
     public static synchronized Amper getInstance() {
         if (instance == null)
             instance = new Amper();
@@ -51,6 +73,14 @@ public class Amper extends ElevatorTemplate {
         configController();
         initShuffleboard();
 
+        for (final AmpState state : AmpState.values()) {
+            stateCommands.put(state, sequence(
+                moveTo(state.getSetpoint()),
+                waitUntil(()-> arrivesWithin(ROLLER_SPINUP_TIME)),
+                runRollers(state.getRollerPower()),
+                waitUntil(this::atSetpoint)
+            ).beforeStarting(()-> goalState = state));
+        }
         setState(AmpState.RETRACTED).schedule();
     }
 
@@ -76,50 +106,100 @@ public class Amper extends ElevatorTemplate {
         // setkG_Function(() ->  getMeasurement()*Math.sin(AMPER_ANGLE));
     }
 
-    public void configTriggers(){
-        // assuming that we always want to amp two notes when given the chance
-        new Trigger(hasNoNotes)
-        .debounce(0.25) // account for hopper to shooter transition
-        .onTrue(setState(AmpState.RETRACTED));
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(periodicPhase);
+        super.periodic();
+        updatePrediction();
+        LoopProfiler.getInstance().stop(periodicPhase);
+    }
 
-        new Trigger(()-> Shooter.goalStateIs(ShooterState.SHOOT))
-        .onTrue(setState(AmpState.RETRACTED));
+    /**
+     * Predicts the time to the setpoint and, once a move is done, corrects the predictor with how long it took.
+     */
+    private void updatePrediction() {
+        final double time = Timer.getFPGATimestamp();
+        final double setpoint = getSetpoint();
+        timeToSetpoint = predictor.predict(getPosition(), getVelocity() * ELEV_VELOCITY_PER_SECOND, setpoint, POSITION_TOLERANCE);
+        // a move interrupted by disabling says nothing about the model
+        if (DriverStation.isDisabled()) movePrediction = 0;
+        if (setpoint != moveSetpoint) {
+            moveSetpoint = setpoint;
+            moveStart = time;
+            movePrediction = timeToSetpoint;
+        }
+        else if (movePrediction > 0 && timeToSetpoint == 0) {
+            predictor.recordMove(movePrediction, time - moveStart);
+            movePrediction = 0;
+        }
     }
-    
+
+    /**
+     * Starts moving to a setpoint and ends right away, the prediction is updated immediately so commands after it do
+     * not see the last move's.
+     */
+    public Command moveTo(double setpoint) {
+        return runOnce(()-> {
+            startPID(setpoint);
+            updatePrediction();
+        });
+    }
+
+    /**
+     * @return Predicted seconds until the elevator is within tolerance of its setpoint, 0 if it is and
+     * {@code Double.POSITIVE_INFINITY} if it is not expected to get there.
+     */
+    public double getTimeToSetpoint() {
+        return timeToSetpoint;
+    }
+
+    /**
+     * @return If the elevator is predicted to reach its setpoint within the given seconds, to start what has to meet it
+     * there early.
+     */
+    public boolean arrivesWithin(double seconds) {
+        return timeToSetpoint <= seconds;
+    }
+
     public void setVoltage(double volts) {
         ELEV_MOTOR.set(0, Control.Position);
         ELEV_MOTOR.setVolts(volts);
     }
 
+    public void setIO(MechanismIO io) {
+        this.io = io;
+    }
+
+    @Override
+    public double getMeasurement() {
+        return io.getPosition();
+    }
+
     public double getVelocity() {
-        return ELEV_MOTOR.getVelocity();
+        return io.getVelocity();
     }
     
     public double getPosition() {
-        return ELEV_MOTOR.getPosition();
+        return io.getPosition();
     }
 
     @Override
     public void initShuffleboard(){
         super.initShuffleboard();
 
-        NAR_Shuffleboard.addData(getName(), "Roller Current", ()-> ROLLER_MOTOR.getStallCurrent(), 5, 2);
+        TelemetryPublisher.getInstance().addNumber("Shuffleboard/" + getName(), "Roller Current", ()-> ROLLER_MOTOR.getStallCurrent(), Tier.MEDIUM);
     }
 
     public Command runRollers(double power) {
-        return runOnce(() -> ROLLER_MOTOR.set(power));
+        return runOnce(() -> MotorOutputs.getInstance().set(rollerChannel, power));
     }
 
     public boolean rollerHasStaller(){
-        return ROLLER_MOTOR.getStallCurrent() > ROLLER_STALL_THRESHOLD;
+        return amperHasStalled.getAsBoolean();
     }
 
     public Command setState(AmpState state) {
-        goalState = state;
-        return sequence(
-            moveElevator(state.getSetpoint()),
-            runRollers(state.getRollerPower())
-        );
+        return stateCommands.get(state);
     }
 
     public static AmpState getGoalState() {
@@ -1,10 +1,11 @@
 package frc.team3128.subsystems;
 
+import java.util.EnumMap;
+
 import common.core.subsystems.ManipulatorTemplate;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.button.Trigger;
-import frc.team3128.subsystems.Intake.IntakeState;
-import frc.team3128.subsystems.Shooter.ShooterState;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MotorOutputs;
 
 import static frc.team3128.Constants.HopperConstants.*;
 import static frc.team3128.Constants.Flags.*;
@@ -15,7 +16,7 @@ public class Hopper extends ManipulatorTemplate {
         INTAKE(HPPR_INTAKE_POWER),
         OUTTAKE(HPPR_OUTTAKE_POWER),
         IDLE(HPPR_STALL_POWER),
-        ADVANCE(HPPR_STALL_POWER);
+        ADVANCE(HPPR_ADVANCE_POWER);
 
         private final double power;
 
@@ -31,6 +32,11 @@ public class Hopper extends ManipulatorTemplate {
     private static Hopper instance;
     private static HopperState goalState;
 
+    private final EnumMap<HopperState, Command> stateCommands = new EnumMap<HopperState, Command>(HopperState.class);
+
+    private final int hopperChannel = MotorOutputs.getInstance().register("Hopper", HPPR_MOTOR);
+    private final int periodicPhase = LoopProfiler.getInstance().register(getName() + ".periodic");
+
     public static synchronized Hopper getInstance() {
         if (instance == null) 
             instance = new Hopper();
@@ -42,7 +48,9 @@ public class Hopper extends ManipulatorTemplate {
 
         // initShuffleboard();
 
-        setDefaultCommand(setState(HopperState.IDLE));
+        for (final HopperState state : HopperState.values()) {
+            stateCommands.put(state, runManipulator(state.getPower()).beforeStarting(()-> goalState = state));
+        }
     }
 
     @Override
@@ -55,30 +63,28 @@ public class Hopper extends ManipulatorTemplate {
         HPPR_MOTOR.enableVoltageCompensation(HPPR_VOLT_COMP);
     }
 
-    public void configTriggers() {
-
-        new Trigger(not(hopperHasNote))
-        .and(()-> Intake.goalStateIs(IntakeState.INTAKE))
-        .onTrue(setState(HopperState.INTAKE));
-
-        new Trigger(noteAdvanceRequired)
-        .onTrue(setState(HopperState.ADVANCE));
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(periodicPhase);
+        super.periodic();
+        LoopProfiler.getInstance().stop(periodicPhase);
+    }
 
-        // necessary to allow for two note intaking
-        new Trigger(hasTwoNotes)
-        .or(()->Intake.goalStateIs(IntakeState.RETRACTED) &&
-                Shooter.goalStateIs(ShooterState.IDLE))
-        .onTrue(setState(HopperState.IDLE));
+    /**
+     * Routes hopper writes through the batched output stage.
+     */
+    @Override
+    public Command runManipulator(double power) {
+        return runOnce(()-> MotorOutputs.getInstance().set(hopperChannel, power));
     }
 
     @Override
     public boolean hasObjectPresent() {
-        return !HPPR_SENSOR.get();
+        return hopperHasNote.getAsBoolean();
     }
 
     public Command setState(HopperState state) {
-        goalState = state;
-        return runManipulator(state.getPower());
+        return stateCommands.get(state);
     }
 
     public static HopperState getGoalState() {
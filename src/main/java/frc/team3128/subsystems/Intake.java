@@ -1,13 +1,23 @@
 package frc.team3128.subsystems;
 
 import static frc.team3128.Constants.AmperConstants.POSITION_MAX;
-import static frc.team3128.Constants.Flags.hasTwoNotes;
 import static frc.team3128.Constants.IntakeConstants.*;
 
+import java.util.EnumMap;
+
 import common.core.subsystems.PivotTemplate;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.team3128.util.JerkLimitedProfile;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MechanismIO;
+import frc.team3128.util.MotorOutputs;
 
 import static edu.wpi.first.wpilibj2.command.Commands.*;
 
@@ -40,6 +50,23 @@ public class Intake extends PivotTemplate{
     private static Intake instance;
     private static IntakeState goalState;
 
+    private final EnumMap<IntakeState, Command> stateCommands = new EnumMap<IntakeState, Command>(IntakeState.class);
+
+    private final int rollerChannel = MotorOutputs.getInstance().register("Intake Rollers", ROLLER_MOTOR);
+    private final int periodicPhase = LoopProfiler.getInstance().register(getName() + ".periodic");
+
+    private MechanismIO io = MechanismIO.of(PIVT_MOTOR);
+
+    private final JerkLimitedProfile profile = new JerkLimitedProfile(PROFILE_MAX_VELOCITY, PROFILE_MAX_ACCELERATION, PROFILE_MAX_JERK);
+    private final DoubleEntry maxVelocity;
+    private final DoubleEntry maxAcceleration;
+    private final DoubleEntry maxJerk;
+    // start of the profile being followed, -1 when the setpoint is not profiled
+    private double profileStart = -1;
+    private double profiledSetpoint = 0;
+    // velocity and acceleration feedforward of the profile, gravity is the controller's kG term
+    private double profileFeedforward = 0;
+
     public static synchronized Intake getInstance() {
         if (instance == null)
             instance = new Intake();
@@ -51,10 +78,36 @@ public class Intake extends PivotTemplate{
 
         setkG_Function(()-> Math.cos(Units.degreesToRadians(getSetpoint())));
 
+        final NetworkTable tuning = NetworkTableInstance.getDefault().getTable("Tuning/Intake Profile");
+        maxVelocity = tunable(tuning, "Max Velocity", PROFILE_MAX_VELOCITY);
+        maxAcceleration = tunable(tuning, "Max Acceleration", PROFILE_MAX_ACCELERATION);
+        maxJerk = tunable(tuning, "Max Jerk", PROFILE_MAX_JERK);
+
         configController();
         initShuffleboard();
 
-        setDefaultCommand(setState(IntakeState.RETRACTED));
+        for (final IntakeState state : IntakeState.values()) {
+            stateCommands.put(state, sequence(
+                profileTo(state.getAngle()),
+                waitUntil(()-> getTimeToGoal() <= ROLLER_SPINUP_TIME),
+                runRollers(state.getPower()),
+                waitUntil(this::atSetpoint)
+            ).beforeStarting(()-> goalState = state));
+        }
+    }
+
+    private static DoubleEntry tunable(NetworkTable table, String name, double defaultValue) {
+        final DoubleEntry entry = table.getDoubleTopic(name).getEntry(defaultValue);
+        entry.set(defaultValue);
+        return entry;
+    }
+
+    /**
+     * @return The tuned limit, or the default if the entry is not a positive number.
+     */
+    private static double getLimit(DoubleEntry entry, double defaultValue) {
+        final double value = entry.get();
+        return Double.isFinite(value) && value > 0 ? value : defaultValue;
     }
 
     @Override
@@ -79,21 +132,113 @@ public class Intake extends PivotTemplate{
         this.setSafetyThresh(2);
     }
 
-    public void configTriggers(){
-        new Trigger(hasTwoNotes)
-        .onTrue(setState(IntakeState.RETRACTED));
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(periodicPhase);
+        followProfile();
+        super.periodic();
+        LoopProfiler.getInstance().stop(periodicPhase);
+    }
+
+    /**
+     * Moves the controller setpoint along the profile, before the controller runs this loop. A setpoint set by anything
+     * else ends the profile.
+     */
+    private void followProfile() {
+        if (profileStart >= 0 && (DriverStation.isDisabled() || getSetpoint() != profiledSetpoint)) profileStart = -1;
+        if (profileStart < 0) {
+            profileFeedforward = 0;
+            return;
+        }
+        final double time = Timer.getFPGATimestamp() - profileStart;
+        profile.sample(time);
+        getController().setSetpoint(profile.getPosition());
+        profiledSetpoint = getSetpoint();
+        profileFeedforward = getProfileFeedforward(profile.getVelocity(), profile.getAcceleration());
+        if (time >= profile.getTotalTime()) profileStart = -1;
+    }
+
+    @Override
+    protected void useOutput(double output, double setpoint) {
+        super.useOutput(output + profileFeedforward, setpoint);
+    }
+
+    /**
+     * @return Volts to hold the pivot against gravity at an angle and follow a profile's velocity and acceleration.
+     */
+    public static double getFeedforward(double angle, double velocity, double acceleration) {
+        return PIVT_kG * Math.cos(Units.degreesToRadians(angle)) + getProfileFeedforward(velocity, acceleration);
+    }
+
+    private static double getProfileFeedforward(double velocity, double acceleration) {
+        return PIVT_kV * velocity + PIVT_kA * acceleration;
+    }
+
+    /**
+     * Starts a jerk limited profile from the current angle to a new one. Ends right away, the profile is followed in
+     * {@link #periodic()}.
+     */
+    public Command profileTo(double angle) {
+        return runOnce(()-> {
+            // a new goal mid move starts from the current setpoint, the controller absorbs the change in velocity
+            final double start = profileStart >= 0 ? getSetpoint() : getAngle();
+            profile.setLimits(
+                getLimit(maxVelocity, PROFILE_MAX_VELOCITY),
+                getLimit(maxAcceleration, PROFILE_MAX_ACCELERATION),
+                getLimit(maxJerk, PROFILE_MAX_JERK)
+            );
+            profile.plan(start, MathUtil.clamp(angle, POSITION_MIN, POSITION_MAX));
+            startPID(start);
+            profiledSetpoint = getSetpoint();
+            profileFeedforward = 0;
+            profileStart = Timer.getFPGATimestamp();
+        });
+    }
+
+    /**
+     * @return Predicted seconds until the pivot reaches its goal, 0 once the profile is done.
+     */
+    public double getTimeToGoal() {
+        if (profileStart < 0) return 0;
+        return Math.max(0, profile.getTotalTime() - (Timer.getFPGATimestamp() - profileStart));
+    }
+
+    public boolean isProfiling() {
+        return profileStart >= 0;
+    }
+
+    public void setIO(MechanismIO io) {
+        this.io = io;
+    }
+
+    @Override
+    public double getMeasurement() {
+        return io.getPosition();
+    }
+
+    public double getAngle() {
+        return getMeasurement();
+    }
+
+    /**
+     * @return Volts of feedforward applied this loop, gravity at the setpoint plus the profile's.
+     */
+    public double getFeedforward() {
+        return PIVT_kG * Math.cos(Units.degreesToRadians(getSetpoint())) + profileFeedforward;
+    }
+
+    @Override
+    public boolean atSetpoint() {
+        if (profileStart >= 0) return false;
+        return super.atSetpoint();
     }
 
     public Command runRollers(double power) {
-        return runOnce(()-> ROLLER_MOTOR.set(power));
+        return runOnce(()-> MotorOutputs.getInstance().set(rollerChannel, power));
     }
 
     public Command setState(IntakeState state) {
-        goalState = state;
-        return sequence(
-            pivotTo(state.getAngle()),
-            runRollers(state.getPower())
-        );
+        return stateCommands.get(state);
     }
 
     public static IntakeState getGoalState() {
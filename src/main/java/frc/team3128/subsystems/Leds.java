@@ -12,12 +12,16 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import static frc.team3128.Constants.LedConstants.*;
 
 import frc.team3128.Constants.LedConstants.Colors;
+import frc.team3128.util.LoopProfiler;
 
 
 public class Leds extends SubsystemBase {
     private final CANdle m_candle = new CANdle(CANDLE_ID);
 
     private static Leds instance;
+    private Colors currentColor;
+
+    private final int periodicPhase = LoopProfiler.getInstance().register(getName() + ".periodic");
 
     public static Leds getInstance() {
         if (instance == null) {
@@ -38,6 +42,13 @@ public class Leds extends SubsystemBase {
         m_candle.configAllSettings(config);
     }
 
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(periodicPhase);
+        super.periodic();
+        LoopProfiler.getInstance().stop(periodicPhase);
+    }
+
     public void setDefaultColor() {
         setLedColor(Colors.FLAME);
         //setLedColor(Robot.getAlliance() == Alliance.Red ? Colors.RED : Colors.BLUE);
@@ -45,6 +56,8 @@ public class Leds extends SubsystemBase {
 
     //Set Elevator Leds
     public void setLedColor(Colors color) {
+        // the CANdle keeps running its last animation, only write when the color changes
+        if (color == currentColor) return;
 
         switch (color) {
             case AMP:
@@ -77,9 +90,11 @@ public class Leds extends SubsystemBase {
                 m_candle.setLEDs(color.r,color.g,color.b, WHITE_VALUE, STARTING_ID, PIVOT_COUNT);
                 break;
         }
+        currentColor = color;
     }
 
     public void resetAnimationSlot(int slots) {
+        currentColor = null;
         m_candle.setLEDs(0,0,0, WHITE_VALUE, STARTING_ID, PIVOT_COUNT);
         for (int i = 0; i < slots; i++) {
          m_candle.animate(null, i);
@@ -87,6 +102,7 @@ public class Leds extends SubsystemBase {
      }
 
     public void resetAnimationSlot(int slots, int offset) {
+       currentColor = null;
        for (int i = 0; i < slots; i++) {
         m_candle.animate(null, i+offset);
        }
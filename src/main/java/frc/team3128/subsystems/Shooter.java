@@ -3,40 +3,55 @@ package frc.team3128.subsystems;
 import common.core.controllers.Controller;
 import common.core.controllers.Controller.Type;
 import common.core.subsystems.ShooterTemplate;
+import common.utility.Log;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
-import frc.team3128.subsystems.Amper.AmpState;
-import frc.team3128.subsystems.Hopper.HopperState;
+import frc.team3128.Robot;
+import frc.team3128.util.LoopProfiler;
+import frc.team3128.util.MechanismIO;
+import frc.team3128.util.MotorOutputs;
+import frc.team3128.util.MovingShotSolver;
+import frc.team3128.util.PoseHistory;
 
 import static edu.wpi.first.wpilibj2.command.Commands.*;
 import static frc.team3128.Constants.Flags.*;
 import static frc.team3128.Constants.ShooterConstants.*;
 
+import java.util.EnumMap;
 import java.util.function.DoubleSupplier;
 
 public class Shooter extends ShooterTemplate {
 
     public enum ShooterState{
         IDLE(0, 0, null),
-        SHOOT(SHOOTER_RPM, KICK_POWER, Swerve.getInstance()::getTurnAngle), //set to null if not working
+        SHOOT(MovingShotSolver.getInstance()::getRPM, KICK_POWER, MovingShotSolver.getInstance()::getHeading), //set to null if not working
         EDGE_FEED(EDGE_FEED_RPM, KICK_POWER, ()-> EDGE_FEED_ANGLE),
         MIDDLE_FEED(MIDDLE_FEED_RPM, KICK_POWER, ()-> MIDDLE_FEED_ANGLE),
         PRIMED(AMP_RPM, 0, ()-> AMP_ANGLE),
         AMP(AMP_RPM, KICK_POWER, ()-> AMP_ANGLE),
-        RECIEVE(0, KICK_POWER, ()-> AMP_ANGLE);
+        RECIEVE(0, KICK_RECIEVE_POWER, ()-> AMP_ANGLE);
 
-        private final double rmp; // can change to power if you want
+        private final DoubleSupplier rmp; // can change to power if you want
         private final double kickPower;
         private DoubleSupplier robotAngle;
 
         private ShooterState(double rmp, double kickPower, DoubleSupplier robotAngle){
+            this(()-> rmp, kickPower, robotAngle);
+        }
+
+        private ShooterState(DoubleSupplier rmp, double kickPower, DoubleSupplier robotAngle){
             this.rmp = rmp;
             this.kickPower = kickPower;
             this.robotAngle = robotAngle;
         }
 
+        /**
+         * @return Goal rpm, evaluated when called so distance based states track the robot.
+         */
         public double getRPM(){
-            return rmp;
+            return rmp.getAsDouble();
         }
 
         public double getKickPower(){
@@ -46,10 +61,35 @@ public class Shooter extends ShooterTemplate {
         public DoubleSupplier getRobotAngle(){
             return robotAngle;
         }
+
+        /**
+         * @return If the state spins the flywheel, these take the shooter back from pre-arming.
+         */
+        public boolean usesFlywheel(){
+            return this != IDLE && this != RECIEVE;
+        }
     }
 
     private static Shooter instance;
     private static ShooterState goalState;
+    private static ShooterState activeState = ShooterState.IDLE;
+
+    private final EnumMap<ShooterState, Command> stateCommands = new EnumMap<ShooterState, Command>(ShooterState.class);
+    private final Command preArmCommand;
+
+    private final double[] historySample = new double[PoseHistory.SAMPLE_SIZE];
+    private boolean preArmed = false;
+    // when pre-arming was last interrupted, a shot starting in the same loop took over a spun up flywheel
+    private double preArmInterruptTime = Double.NEGATIVE_INFINITY;
+    private double shotRequestTime = -1;
+    private boolean shotWasPreArmed = false;
+    private final double[] shotTimeTotals = new double[2];
+    private final int[] shotCounts = new int[2];
+
+    private final int kickChannel = MotorOutputs.getInstance().register("Kicker", KICK_MOTOR);
+    private final int periodicPhase = LoopProfiler.getInstance().register(getName() + ".periodic");
+
+    private MechanismIO io = MechanismIO.of(SHTR_MOTOR);
 
     public static synchronized Shooter getInstance(){
         if (instance == null)
@@ -64,7 +104,10 @@ public class Shooter extends ShooterTemplate {
         configController();
         initShuffleboard();
 
-        setDefaultCommand(setState(ShooterState.IDLE));
+        for (final ShooterState state : ShooterState.values()) {
+            stateCommands.put(state, buildState(state));
+        }
+        preArmCommand = buildPreArm();
     }
 
     @Override
@@ -88,46 +131,143 @@ public class Shooter extends ShooterTemplate {
         setSafetyThresh(2);
     }
 
+    /**
+     * Note handling is driven by {@link Superstructure}, only pre-arming is triggered here.
+     */
     public void configTriggers(){
-        new Trigger(shooterHasNote)
-        .and(()-> Amper.goalStateIs(AmpState.PRIMED))
-        .onTrue(setState(ShooterState.PRIMED));
+        new Trigger(this::shouldPreArm)
+        .debounce(PREARM_DEBOUNCE)
+        .whileTrue(preArm());
+    }
 
-        new Trigger(shooterHasNote)
-        .and(()-> Amper.goalStateIs(AmpState.AMP))
-        .and(()-> Amper.getInstance().atSetpoint())
-        .onTrue(setState(ShooterState.AMP));
+    /**
+     * A shot is likely when holding a note and either close to the speaker or driving towards it.
+     * Never pre-arms when the battery is below {@code PREARM_MIN_VOLTAGE} so the flywheel does not sag the bus, or when
+     * the state already spins the flywheel.
+     */
+    public boolean shouldPreArm() {
+        if (!shooterHasNote.getAsBoolean() || Robot.getAlliance() == null) return false;
+        if (activeState.usesFlywheel()) return false;
+        if (RobotController.getBatteryVoltage() < PREARM_MIN_VOLTAGE) return false;
 
-        new Trigger(hasNoNotes)
-        .onTrue(setState(ShooterState.IDLE));
+        final Swerve swerve = Swerve.getInstance();
+        final MovingShotSolver solver = MovingShotSolver.getInstance();
+        solver.updateIfStale();
+        if (solver.getDistance() < PREARM_DISTANCE) return true;
 
-        new Trigger(()-> goalStateIs(ShooterState.IDLE))
-        .and(()-> Hopper.goalStateIs(HopperState.ADVANCE))
-        .onTrue(setState(ShooterState.RECIEVE));
+        if (!swerve.getPoseHistory().latest(historySample)) return false;
+        final double dx = solver.getVirtualX() - historySample[PoseHistory.X];
+        final double dy = solver.getVirtualY() - historySample[PoseHistory.Y];
+        final double closingSpeed = (historySample[PoseHistory.VX] * dx + historySample[PoseHistory.VY] * dy) / Math.hypot(dx, dy);
+        return closingSpeed > PREARM_CLOSING_SPEED;
+    }
+
+    /**
+     * Holds the flywheel at a fraction of the predicted shot rpm until interrupted. {@link Superstructure} interrupts it
+     * for any state that uses the flywheel.
+     * @return The same command every call, built at startup.
+     */
+    public Command preArm() {
+        return preArmCommand;
+    }
+
+    private Command buildPreArm() {
+        return sequence(
+            runOnce(()-> preArmed = true),
+            runOnce(()-> startPID(getPreArmRPM())),
+            run(()-> getController().setSetpoint(getPreArmRPM()))
+        ).finallyDo(interrupted -> {
+            preArmed = false;
+            if (interrupted) preArmInterruptTime = Timer.getFPGATimestamp();
+        });
+    }
 
-        new Trigger(shooterHasNote)
-        .and(()-> goalStateIs(ShooterState.RECIEVE))
-        .onTrue(setState(ShooterState.IDLE));
+    public double getPreArmRPM() {
+        return PREARM_FRACTION * MovingShotSolver.getInstance().getRPM();
+    }
+
+    public boolean isPreArmed() {
+        return preArmed;
+    }
+
+    @Override
+    public void periodic() {
+        LoopProfiler.getInstance().start(periodicPhase);
+        // keep tracking the moving shot while spun up so the robot does not have to stop to shoot
+        if (activeState == ShooterState.SHOOT && getSetpoint() != 0) {
+            getController().setSetpoint(ShooterState.SHOOT.getRPM());
+        }
+        if (shotRequestTime >= 0 && !hasObjectPresent()) {
+            logShotTime();
+        }
+        super.periodic();
+        LoopProfiler.getInstance().stop(periodicPhase);
     }
 
     public boolean hasObjectPresent(){
-        return !SHTR_SENSOR.get();
+        return shooterHasNote.getAsBoolean();
+    }
+
+    public void setIO(MechanismIO io) {
+        this.io = io;
+    }
+
+    @Override
+    public double getMeasurement() {
+        return io.getVelocity();
     }
 
     public Command runKickMotor(double power) {
-        return runOnce(() -> KICK_MOTOR.set(power));
+        return runOnce(() -> MotorOutputs.getInstance().set(kickChannel, power));
     }
 
     public Command setState(ShooterState state){
-        goalState = state;
+        return stateCommands.get(state);
+    }
+
+    private Command buildState(ShooterState state){
         return parallel(
             sequence(
-                shoot(state.getRPM()),
+                // rpm is read when the command starts so distance based states track the robot
+                runOnce(()-> startPID(state.getRPM())),
                 waitUntil(()-> atSetpoint())
             ),
             // comment this out if you dont want auto rotate when state change
             Swerve.getInstance().turnInPlace(state.getRobotAngle(), 2)
-        ).andThen(runKickMotor(state.getKickPower()));
+        ).andThen(runKickMotor(state.getKickPower()))
+        .beforeStarting(()-> onStateStart(state));
+    }
+
+    private void onStateStart(ShooterState state) {
+        goalState = state;
+        activeState = state;
+        if (state == ShooterState.SHOOT && shotRequestTime < 0) {
+            shotRequestTime = Timer.getFPGATimestamp();
+            // the interrupted pre-arm has already cleared its flag by the time the shot starts
+            shotWasPreArmed = preArmed || Timer.getFPGATimestamp() - preArmInterruptTime <= PREARM_HANDOFF_WINDOW;
+        }
+    }
+
+    /**
+     * Logs the time from shot request to the note leaving, split by whether the flywheel was pre-armed.
+     */
+    private void logShotTime() {
+        final double shotTime = Timer.getFPGATimestamp() - shotRequestTime;
+        final int index = shotWasPreArmed ? 1 : 0;
+        shotTimeTotals[index] += shotTime;
+        shotCounts[index]++;
+        shotRequestTime = -1;
+        Log.info("Shooter", "Shot " + shotTime + " s after request, pre-armed: " + shotWasPreArmed
+            + ", average pre-armed: " + getAverageShotTime(true) + " s, average cold: " + getAverageShotTime(false) + " s");
+    }
+
+    public double getAverageShotTime(boolean preArmed) {
+        final int index = preArmed ? 1 : 0;
+        return shotCounts[index] == 0 ? 0 : shotTimeTotals[index] / shotCounts[index];
+    }
+
+    public static ShooterState getActiveState(){
+        return activeState;
     }
 
     public static ShooterState getGoalState(){
@@ -0,0 +1,361 @@
+package frc.team3128.subsystems;
+
+import static frc.team3128.Constants.Flags.*;
+import static frc.team3128.Constants.SuperstructureConstants.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.function.BooleanSupplier;
+
+import common.utility.Log;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.team3128.subsystems.Amper.AmpState;
+import frc.team3128.subsystems.Hopper.HopperState;
+import frc.team3128.subsystems.Intake.IntakeState;
+import frc.team3128.subsystems.Shooter.ShooterState;
+import frc.team3128.util.BeamBreakInterrupts;
+import frc.team3128.util.MotorOutputs;
+
+/**
+ * Owns the note path through the intake, hopper, shooter and amper.
+ * <p>
+ * The robot is always in one {@link NoteState}, which sets the state of every subsystem. Transitions are listed in a
+ * table and guarded by the beam break flags and driver requests. The first matching transition fires, at most once per
+ * loop. On a transition only the subsystems whose state changes get a command. Every transition logs how long the robot
+ * sat in the previous state, and every scored note logs how long it took from intake.
+ * <p>
+ * While a note is handed off the beam break it is heading for is armed in {@link BeamBreakInterrupts}, so the hopper
+ * and kicker stop from the interrupt the moment the note arrives instead of on the next loop.
+ * <p>
+ * Each subsystem builds its state commands once at startup and {@code setState} returns the same command every call,
+ * so a transition only schedules it. Compose them with {@code asProxy()} rather than wrapping them in a group. The
+ * intake and amper start their rollers once their mechanism is predicted to arrive within the roller spin up time
+ * instead of after it settles.
+ */
+public class Superstructure extends SubsystemBase {
+
+    public enum NoteState {
+        // intake, hopper, shooter, amper; null keeps what the subsystem is doing
+        IDLE(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.IDLE, AmpState.RETRACTED),
+        INTAKING(IntakeState.INTAKE, HopperState.INTAKE, ShooterState.IDLE, AmpState.RETRACTED),
+        ADVANCING(null, HopperState.ADVANCE, ShooterState.RECIEVE, null),
+        HOLDING(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.IDLE, null),
+        INTAKING_SECOND(IntakeState.INTAKE, HopperState.INTAKE, ShooterState.IDLE, null),
+        FULL(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.IDLE, null),
+        PRIMED(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.PRIMED, AmpState.PRIMED),
+        RAISING_AMP(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.PRIMED, AmpState.AMP),
+        AMP(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.AMP, AmpState.AMP),
+        SHOOTING(IntakeState.RETRACTED, HopperState.IDLE, ShooterState.SHOOT, AmpState.RETRACTED);
+
+        private final IntakeState intake;
+        private final HopperState hopper;
+        private final ShooterState shooter;
+        private final AmpState amper;
+
+        private NoteState(IntakeState intake, HopperState hopper, ShooterState shooter, AmpState amper) {
+            this.intake = intake;
+            this.hopper = hopper;
+            this.shooter = shooter;
+            this.amper = amper;
+        }
+    }
+
+    public enum Request {
+        INTAKE,
+        RETRACT,
+        PRIME_AMP,
+        AMP,
+        CANCEL_AMP,
+        SHOOT,
+        SHOOT_ALL
+    }
+
+    private enum AmpRequest {
+        NONE,
+        PRIMED,
+        AMP
+    }
+
+    private enum ShootRequest {
+        NONE,
+        ONCE,
+        ALL
+    }
+
+    private static class Transition {
+        private final EnumSet<NoteState> from;
+        private final NoteState to;
+        private final BooleanSupplier guard;
+        private final Runnable effect;
+        private int count = 0;
+        private double totalTime = 0;
+        private double maxTime = 0;
+
+        private Transition(EnumSet<NoteState> from, NoteState to, BooleanSupplier guard, Runnable effect) {
+            this.from = from;
+            this.to = to;
+            this.guard = guard;
+            this.effect = effect;
+        }
+    }
+
+    private static final EnumSet<NoteState> LOADED = EnumSet.of(NoteState.HOLDING, NoteState.INTAKING_SECOND, NoteState.FULL);
+    private static final EnumSet<NoteState> AMPING = EnumSet.of(NoteState.PRIMED, NoteState.RAISING_AMP, NoteState.AMP);
+
+    // indices into the per subsystem arrays
+    private static final int INTAKE = 0;
+    private static final int HOPPER = 1;
+    private static final int SHOOTER = 2;
+    private static final int AMPER = 3;
+
+    private static Superstructure instance;
+
+    private final ArrayList<Transition> transitions = new ArrayList<Transition>();
+    private final Debouncer emptyDebouncer = new Debouncer(AMP_EMPTY_DEBOUNCE);
+    private final double[] intakeTimes = new double[MAX_QUEUED_NOTES];
+
+    private NoteState state = NoteState.IDLE;
+    private double stateStartTime = 0;
+    private boolean intakeRequested = false;
+    private AmpRequest ampRequest = AmpRequest.NONE;
+    private ShootRequest shootRequest = ShootRequest.NONE;
+    private boolean emptyForAmp = false;
+
+    private final Subsystem[] subsystems = {Intake.getInstance(), Hopper.getInstance(), Shooter.getInstance(), Amper.getInstance()};
+    private final Enum<?>[] issued = new Enum<?>[subsystems.length];
+    private final Command[] issuedCommands = new Command[subsystems.length];
+    private final boolean[] overridden = new boolean[subsystems.length];
+    private boolean wasEnabled = false;
+
+    private final BeamBreakInterrupts interrupts = BeamBreakInterrupts.getInstance();
+    private final int hopperChannel = MotorOutputs.getInstance().getChannel("Hopper");
+    private final int kickerChannel = MotorOutputs.getInstance().getChannel("Kicker");
+
+    private boolean hadHopperNote = false;
+    private boolean hadShooterNote = false;
+    private int queuedNotes = 0;
+    private double intakeToScoreTotal = 0;
+    private int scoredNotes = 0;
+
+    public static synchronized Superstructure getInstance() {
+        if (instance == null)
+            instance = new Superstructure();
+        return instance;
+    }
+
+    private Superstructure() {
+        // a state command cancelled by something that finished in the same scheduler run, like a runOnce manual
+        // command, never shows up as the subsystem's current command, so its state is reissued from here
+        CommandScheduler.getInstance().onCommandInterrupt(command -> {
+            for (int i = 0; i < issuedCommands.length; i++) {
+                if (command == issuedCommands[i]) issued[i] = null;
+            }
+        });
+
+        final BooleanSupplier shooterOnly = shooterHasNote.and(not(hopperHasNote));
+        final BooleanSupplier shooting = ()-> shootRequest != ShootRequest.NONE;
+
+        // shooting
+        add(EnumSet.of(NoteState.SHOOTING), NoteState.ADVANCING, noteAdvanceRequired, this::clearSingleShot);
+        add(EnumSet.of(NoteState.SHOOTING), NoteState.IDLE, hasNoNotes, null);
+        add(union(LOADED, AMPING, EnumSet.of(NoteState.ADVANCING)), NoteState.SHOOTING, ()-> shooting.getAsBoolean() && shooterHasNote.getAsBoolean(), ()-> intakeRequested = false);
+
+        // amping, both notes go out of the amp before retracting
+        add(AMPING, NoteState.IDLE, ()-> emptyForAmp, ()-> ampRequest = AmpRequest.NONE);
+        add(AMPING, NoteState.ADVANCING, noteAdvanceRequired, null);
+        add(EnumSet.of(NoteState.ADVANCING), NoteState.RAISING_AMP, ()-> ampRequest == AmpRequest.AMP && shooterOnly.getAsBoolean(), null);
+        add(EnumSet.of(NoteState.ADVANCING), NoteState.PRIMED, ()-> ampRequest == AmpRequest.PRIMED && shooterOnly.getAsBoolean(), null);
+        add(LOADED, NoteState.PRIMED, ()-> ampRequest == AmpRequest.PRIMED, null);
+        add(EnumSet.of(NoteState.PRIMED), NoteState.RAISING_AMP, ()-> ampRequest == AmpRequest.AMP, null);
+        // feed the note early so it reaches the amp rollers as the elevator does
+        add(EnumSet.of(NoteState.RAISING_AMP), NoteState.AMP, ()-> Amper.getInstance().arrivesWithin(AMP_LEAD_TIME), null);
+        add(AMPING, NoteState.HOLDING, ()-> ampRequest == AmpRequest.NONE, null);
+
+        // intaking
+        add(EnumSet.of(NoteState.INTAKING_SECOND, NoteState.ADVANCING), NoteState.FULL, hasTwoNotes, ()-> intakeRequested = false);
+        add(EnumSet.of(NoteState.IDLE, NoteState.INTAKING, NoteState.HOLDING, NoteState.INTAKING_SECOND, NoteState.FULL), NoteState.ADVANCING, noteAdvanceRequired, null);
+        add(EnumSet.of(NoteState.IDLE, NoteState.INTAKING, NoteState.ADVANCING, NoteState.HOLDING), NoteState.INTAKING_SECOND, ()-> intakeRequested && shooterOnly.getAsBoolean(), null);
+        add(EnumSet.of(NoteState.IDLE, NoteState.INTAKING, NoteState.ADVANCING, NoteState.INTAKING_SECOND, NoteState.FULL), NoteState.HOLDING, ()-> !intakeRequested && shooterOnly.getAsBoolean(), null);
+        add(EnumSet.of(NoteState.IDLE), NoteState.INTAKING, ()-> intakeRequested && hasNoNotes.getAsBoolean(), null);
+        add(EnumSet.of(NoteState.INTAKING), NoteState.IDLE, ()-> !intakeRequested, null);
+
+        // notes lost or outtaken
+        add(union(LOADED, EnumSet.of(NoteState.ADVANCING)), NoteState.IDLE, ()-> hasNoNotes.getAsBoolean() && !intakeRequested, null);
+        add(union(LOADED, EnumSet.of(NoteState.ADVANCING)), NoteState.INTAKING, ()-> hasNoNotes.getAsBoolean() && intakeRequested, null);
+    }
+
+    private void add(EnumSet<NoteState> from, NoteState to, BooleanSupplier guard, Runnable effect) {
+        transitions.add(new Transition(from, to, guard, effect));
+    }
+
+    @SafeVarargs
+    private static EnumSet<NoteState> union(EnumSet<NoteState>... sets) {
+        final EnumSet<NoteState> union = EnumSet.noneOf(NoteState.class);
+        for (final EnumSet<NoteState> set : sets) union.addAll(set);
+        return union;
+    }
+
+    private void clearSingleShot() {
+        if (shootRequest == ShootRequest.ONCE) shootRequest = ShootRequest.NONE;
+    }
+
+    /**
+     * @return Command that passes a request to the state machine, acted on in the next loop.
+     */
+    public Command request(Request request) {
+        return runOnce(()-> handle(request)).ignoringDisable(true);
+    }
+
+    private void handle(Request request) {
+        switch (request) {
+            case INTAKE: intakeRequested = true; break;
+            case RETRACT: intakeRequested = false; break;
+            case PRIME_AMP: if (!hasNoNotes.getAsBoolean()) ampRequest = AmpRequest.PRIMED; break;
+            case AMP: if (!hasNoNotes.getAsBoolean()) ampRequest = AmpRequest.AMP; break;
+            case CANCEL_AMP: ampRequest = AmpRequest.NONE; break;
+            case SHOOT: if (shootRequest == ShootRequest.NONE && !hasNoNotes.getAsBoolean()) shootRequest = ShootRequest.ONCE; break;
+            case SHOOT_ALL: if (!hasNoNotes.getAsBoolean()) shootRequest = ShootRequest.ALL; break;
+        }
+    }
+
+    @Override
+    public void periodic() {
+        final double time = Timer.getFPGATimestamp();
+        trackNotes(time);
+        emptyForAmp = emptyDebouncer.calculate(hasNoNotes.getAsBoolean());
+
+        // indexed so the loop does not allocate an iterator
+        for (int i = 0; i < transitions.size(); i++) {
+            final Transition transition = transitions.get(i);
+            if (!transition.from.contains(state) || !transition.guard.getAsBoolean()) continue;
+            fire(transition, time);
+            break;
+        }
+
+        // commands do not run while disabled, the current state is reissued once enabled
+        final boolean enabled = DriverStation.isEnabled();
+        if (enabled && !wasEnabled) {
+            for (int i = 0; i < subsystems.length; i++) issued[i] = null;
+        }
+        wasEnabled = enabled;
+        if (!enabled) return;
+        issue(INTAKE, state.intake);
+        issue(HOPPER, state.hopper);
+        issue(SHOOTER, state.shooter);
+        issue(AMPER, state.amper);
+    }
+
+    private void fire(Transition transition, double time) {
+        final double dwell = time - stateStartTime;
+        transition.count++;
+        transition.totalTime += dwell;
+        transition.maxTime = Math.max(transition.maxTime, dwell);
+        Log.info("Superstructure", state + " -> " + transition.to + " after " + String.format("%.3f", dwell) + " s");
+
+        if (transition.to == NoteState.IDLE) {
+            ampRequest = AmpRequest.NONE;
+            shootRequest = ShootRequest.NONE;
+        }
+        if (transition.effect != null) transition.effect.run();
+        state = transition.to;
+        stateStartTime = time;
+        armStops();
+    }
+
+    private void armStops() {
+        interrupts.disarm(BeamBreakInterrupts.SHOOTER);
+        interrupts.disarm(BeamBreakInterrupts.HOPPER);
+        if (state == NoteState.ADVANCING) interrupts.arm(BeamBreakInterrupts.SHOOTER, hopperChannel, kickerChannel);
+        else if (state == NoteState.INTAKING_SECOND) interrupts.arm(BeamBreakInterrupts.HOPPER, hopperChannel);
+    }
+
+    /**
+     * Schedules a command for a subsystem if its state differs from what it was last given. A subsystem taken over by
+     * another command, like a manual shooter command, gets its state again once that command ends or is interrupted.
+     * Pre-arming only keeps the shooter while the state leaves the flywheel off, a state that spins it interrupts it.
+     */
+    private void issue(int index, Enum<?> target) {
+        final Command current = subsystems[index].getCurrentCommand();
+        if (index == SHOOTER && current != null && current == Shooter.getInstance().preArm()
+            && target != null && ((ShooterState) target).usesFlywheel()) {
+            overridden[index] = false;
+            issued[index] = null;
+        }
+        else if (current != null && current != issuedCommands[index]) overridden[index] = true;
+        else if (current == null && overridden[index]) {
+            overridden[index] = false;
+            issued[index] = null;
+        }
+        if (target == null || target == issued[index] || overridden[index]) return;
+
+        final Command command;
+        switch (index) {
+            case INTAKE: command = Intake.getInstance().setState((IntakeState) target); break;
+            case HOPPER: command = Hopper.getInstance().setState((HopperState) target); break;
+            case SHOOTER: command = Shooter.getInstance().setState((ShooterState) target); break;
+            default: command = Amper.getInstance().setState((AmpState) target); break;
+        }
+        issued[index] = target;
+        issuedCommands[index] = command;
+        command.schedule();
+    }
+
+    /**
+     * Timestamps notes entering the hopper and logs the time to score when they leave the shooter.
+     */
+    private void trackNotes(double time) {
+        final boolean hopperNote = hopperHasNote.getAsBoolean();
+        final boolean shooterNote = shooterHasNote.getAsBoolean();
+        if (hopperNote && !hadHopperNote && queuedNotes < MAX_QUEUED_NOTES) {
+            intakeTimes[queuedNotes++] = edgeTime(interrupts.getLastBlockedTime(BeamBreakInterrupts.HOPPER), time);
+        }
+        if (!shooterNote && hadShooterNote && (state == NoteState.SHOOTING || state == NoteState.AMP) && queuedNotes > 0) {
+            final double intakeToScore = edgeTime(interrupts.getLastClearedTime(BeamBreakInterrupts.SHOOTER), time) - intakeTimes[0];
+            System.arraycopy(intakeTimes, 1, intakeTimes, 0, --queuedNotes);
+            intakeToScoreTotal += intakeToScore;
+            scoredNotes++;
+            Log.info("Superstructure", "Scored " + String.format("%.3f", intakeToScore) + " s after intake, average "
+                + String.format("%.3f", getAverageIntakeToScore()) + " s");
+        }
+        if (hasNoNotes.getAsBoolean()) queuedNotes = 0;
+        hadHopperNote = hopperNote;
+        hadShooterNote = shooterNote;
+    }
+
+    /**
+     * @return Time of the interrupt edge behind a flag change, or the loop time if there was no recent edge.
+     */
+    private static double edgeTime(double edge, double time) {
+        return time - edge <= EDGE_MATCH_WINDOW ? edge : time;
+    }
+
+    public NoteState getState() {
+        return state;
+    }
+
+    public boolean stateIs(NoteState state) {
+        return this.state == state;
+    }
+
+    public double getAverageIntakeToScore() {
+        return scoredNotes == 0 ? 0 : intakeToScoreTotal / scoredNotes;
+    }
+
+    /**
+     * Logs the count, average and max time spent before every transition that has fired.
+     */
+    public void logTransitionTimes() {
+        for (int i = 0; i < transitions.size(); i++) {
+            final Transition transition = transitions.get(i);
+            if (transition.count == 0) continue;
+            Log.info("Superstructure", transition.from + " -> " + transition.to + ": " + transition.count + " times, average "
+                + String.format("%.3f", transition.totalTime / transition.count) + " s, max " + String.format("%.3f", transition.maxTime) + " s");
+        }
+    }
+}
@@ -4,7 +4,6 @@ import static frc.team3128.Constants.VisionConstants.SVR_STATE_STD;
 import static frc.team3128.Constants.VisionConstants.SVR_VISION_MEASUREMENT_STD;
 
 import java.util.function.DoubleSupplier;
-import java.util.function.Supplier;
 
 import com.ctre.phoenix6.hardware.Pigeon2;
 
@@ -13,17 +12,22 @@ import common.core.swerve.SwerveBase;
 import common.core.swerve.SwerveModule;
 import common.hardware.motorcontroller.NAR_Motor.Control;
 import common.utility.shuffleboard.NAR_Shuffleboard;
-import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.team3128.Robot;
 import frc.team3128.RobotContainer;
 import frc.team3128.Constants.FieldConstants;
 import frc.team3128.commands.CmdSwerveDrive;
+import frc.team3128.util.OdometryThread;
+import frc.team3128.util.PoseHistory;
+import frc.team3128.util.StartupOrchestrator;
+import frc.team3128.util.TelemetryPublisher;
+import frc.team3128.util.TelemetryPublisher.Tier;
 
 import static frc.team3128.Constants.SwerveConstants.*;
 import static frc.team3128.Constants.FocalAimConstants.*;
@@ -38,7 +42,10 @@ public class Swerve extends SwerveBase {
 
     public double throttle = 1;
 
-    public Supplier<Double> yaw;
+    private final ChassisSpeeds driveSpeeds = new ChassisSpeeds();
+    private final ChassisSpeeds commandedSpeeds = new ChassisSpeeds();
+
+    private OdometryThread odometry;
 
     public static synchronized Swerve getInstance() {
         if (instance == null) {
@@ -50,19 +57,18 @@ public class Swerve extends SwerveBase {
     private Swerve() {
         super(swerveKinematics, SVR_STATE_STD, SVR_VISION_MEASUREMENT_STD, Mod0, Mod1, Mod2, Mod3);
         chassisVelocityCorrection = false;
-        Timer.delay(1);
+        StartupOrchestrator.waitFor("Swerve encoders", this::encodersReady, DEVICE_READY_TIMEOUT);
         gyro = new Pigeon2(pigeonID);
-        Timer.delay(1);
-        var x = gyro.getYaw();
-        x.setUpdateFrequency(100);
-        yaw = gyro.getYaw().asSupplier();
+        StartupOrchestrator.waitFor("Pigeon2", ()-> gyro.getYaw().waitForUpdate(StartupOrchestrator.POLL_PERIOD).getStatus().isOK(), DEVICE_READY_TIMEOUT);
+        odometry = new OdometryThread(gyro, modules);
 
         gyro.optimizeBusUtilization();
+        odometry.start();
 
         initShuffleboard();
         // NAR_Shuffleboard.addData("Testing", "Name", ()-> getDist(speakerMidpointBlue), 0, 0);
         // NAR_Shuffleboard.addData("Testing", "Dist", ()-> getDistHorizontal(), 0, 1);
-        NAR_Shuffleboard.addData("Auto", "Setpoint", ()-> TURN_CONTROLLER.atSetpoint());
+        TelemetryPublisher.getInstance().addBoolean("Shuffleboard/Auto", "Setpoint", ()-> TURN_CONTROLLER.atSetpoint(), Tier.MEDIUM);
         initStateCheck();
     }
 
@@ -79,6 +85,61 @@ public class Swerve extends SwerveBase {
         }
     }
 
+    /**
+     * Drives the robot without allocating geometry objects, reusing a single {@link ChassisSpeeds}.
+     * @param xVelocity Forward velocity in meters per second.
+     * @param yVelocity Left velocity in meters per second.
+     * @param rotation Angular velocity in radians per second.
+     * @param fieldRelative Whether the velocities are relative to the field.
+     */
+    public void drive(double xVelocity, double yVelocity, double rotation, boolean fieldRelative) {
+        if (fieldRelative) {
+            final double yaw = Math.toRadians(getYaw());
+            final double cos = Math.cos(yaw);
+            final double sin = Math.sin(yaw);
+            driveSpeeds.vxMetersPerSecond = xVelocity * cos + yVelocity * sin;
+            driveSpeeds.vyMetersPerSecond = -xVelocity * sin + yVelocity * cos;
+        }
+        else {
+            driveSpeeds.vxMetersPerSecond = xVelocity;
+            driveSpeeds.vyMetersPerSecond = yVelocity;
+        }
+        driveSpeeds.omegaRadiansPerSecond = rotation;
+        drive(driveSpeeds);
+    }
+
+    @Override
+    public void drive(ChassisSpeeds velocity) {
+        commandedSpeeds.vxMetersPerSecond = velocity.vxMetersPerSecond;
+        commandedSpeeds.vyMetersPerSecond = velocity.vyMetersPerSecond;
+        commandedSpeeds.omegaRadiansPerSecond = velocity.omegaRadiansPerSecond;
+        super.drive(velocity);
+    }
+
+    @Override
+    public void stop() {
+        commandedSpeeds.vxMetersPerSecond = 0;
+        commandedSpeeds.vyMetersPerSecond = 0;
+        commandedSpeeds.omegaRadiansPerSecond = 0;
+        super.stop();
+    }
+
+    /**
+     * @return Robot relative speeds last sent to the modules.
+     */
+    public ChassisSpeeds getCommandedSpeeds() {
+        return commandedSpeeds;
+    }
+
+    /**
+     * Driver stick axes are rotated 90 degrees on red or when robot relative and -90 degrees on blue, drive with
+     * {@code (-sign * y, sign * x)}.
+     * @return Sign of the rotation from the driver sticks to drive velocities.
+     */
+    public double getRotationSign() {
+        return (Robot.getAlliance() == Alliance.Red || !fieldRelative) ? 1 : -1;
+    }
+
     public double getVelocity() {
         var x = getRobotVelocity();
         return Math.hypot(x.vxMetersPerSecond, x.vyMetersPerSecond);
@@ -86,7 +147,50 @@ public class Swerve extends SwerveBase {
 
     @Override
     public double getYaw() {
-        return yaw.get();
+        return odometry.getYaw();
+    }
+
+    /**
+     * @return Pose from the high rate odometry thread.
+     */
+    @Override
+    public Pose2d getPose() {
+        if (odometry == null) return super.getPose();
+        return odometry.getPose();
+    }
+
+    @Override
+    public void resetOdometry(Pose2d pose) {
+        super.resetOdometry(pose);
+        if (odometry != null) odometry.resetPose(pose);
+    }
+
+    @Override
+    public void addVisionMeasurement(Pose2d pose, double timestamp) {
+        if (odometry == null) {
+            super.addVisionMeasurement(pose, timestamp);
+            return;
+        }
+        odometry.addVisionMeasurement(pose, timestamp);
+    }
+
+    public OdometryThread getOdometry() {
+        return odometry;
+    }
+
+    /**
+     * @return Time indexed pose and velocity history, see {@link PoseHistory#sample}.
+     */
+    public PoseHistory getPoseHistory() {
+        return odometry.getHistory();
+    }
+
+    /**
+     * Fills out with the pose and field relative velocity at a timestamp.
+     * @return False if there is no history yet.
+     */
+    public boolean samplePose(double timestamp, double[] out) {
+        return odometry != null && odometry.getHistory().sample(timestamp, out);
     }
 
     @Override
@@ -104,7 +208,7 @@ public class Swerve extends SwerveBase {
         gyro.setYaw(reset);
     }
 
-    public Translation2d calculateTarget(Translation2d target, ChassisSpeeds velocity, double time) {
+    public static Translation2d calculateTarget(Translation2d target, ChassisSpeeds velocity, double time) {
         return target.minus(new Translation2d(0, velocity.vyMetersPerSecond * time));
     }
 
@@ -122,7 +226,7 @@ public class Swerve extends SwerveBase {
         return getDist(getPose().getTranslation(), point);
     }
 
-    public double getDist(Translation2d point1, Translation2d point2) {
+    public static double getDist(Translation2d point1, Translation2d point2) {
         return point1.getDistance(point2) - robotLength / 2.0;
     }
 
@@ -135,7 +239,7 @@ public class Swerve extends SwerveBase {
         return getTurnAngle(robotPos, target);
     }
 
-    public double getTurnAngle(Translation2d robotPos, Translation2d targetPos) {
+    public static double getTurnAngle(Translation2d robotPos, Translation2d targetPos) {
         return Math.toDegrees(Math.atan2(targetPos.getY() - robotPos.getY(), targetPos.getX() - robotPos.getX()));
     }
 
@@ -147,23 +251,27 @@ public class Swerve extends SwerveBase {
             ()-> getYaw(), //measurement
             setpoint, //setpoint
             (double output) -> {
-                final double x = RobotContainer.controller.getLeftX();
-                final double y = RobotContainer.controller.getLeftY();
-                Translation2d translation = new Translation2d(x,y).times(maxAttainableSpeed);
-                if (Robot.getAlliance() == Alliance.Red || !fieldRelative) {
-                    translation = translation.rotateBy(Rotation2d.fromDegrees(90));
-                }
-                else {
-                    translation = translation.rotateBy(Rotation2d.fromDegrees(-90));
-                }
-
-                Swerve.getInstance().drive(translation, Units.degreesToRadians(output), true);
+                final double x = RobotContainer.controller.getLeftX() * maxAttainableSpeed;
+                final double y = RobotContainer.controller.getLeftY() * maxAttainableSpeed;
+                final double rotationSign = getRotationSign();
+                Swerve.getInstance().drive(-rotationSign * y, rotationSign * x, Units.degreesToRadians(output), true);
             },
             timeout,
             Swerve.getInstance()
         ).beforeStarting(runOnce(()-> CmdSwerveDrive.disableTurn()));
     }
 
+    /**
+     * @return True once every CANcoder reports an absolute angle, always true in simulation.
+     */
+    private boolean encodersReady() {
+        if (RobotBase.isSimulation()) return true;
+        for (final SwerveModule module : modules) {
+            if (module.getAbsoluteAngle().getDegrees() == 0) return false;
+        }
+        return true;
+    }
+
     public boolean isConfigured() {
         for (final SwerveModule module : modules) {
             final double CANCoderAngle = module.getAbsoluteAngle().getDegrees();
@@ -173,6 +281,11 @@ public class Swerve extends SwerveBase {
         return true;
     }
 
+    @Override
+    public void periodic() {
+        // SwerveBase only updates its own pose estimator here, the odometry thread estimates the pose instead
+    }
+
     public Pigeon2 getGyro() {
         return gyro;
     }
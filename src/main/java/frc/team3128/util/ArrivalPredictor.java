@@ -0,0 +1,92 @@
+package frc.team3128.util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Predicts when a position controlled mechanism reaches its setpoint by running its controller against the
+ * feedforward plant, {@code V = kS sgn(v) + kV v + kA a + kG}, from the measured position and velocity.
+ * <p>
+ * The controller is the proportional term plus static and gravity feedforward, held for each loop like it is on the
+ * roboRIO, and the output is limited to the battery. The plant is capped at the mechanism's top speed since the
+ * characterized gains do not always limit it on their own.
+ * <p>
+ * Nothing models the mechanism exactly, so predictions are scaled by how long moves actually took compared to what was
+ * predicted when they started, see {@link #recordMove}.
+ */
+public class ArrivalPredictor {
+
+    public static final double MAX_VOLTAGE = 12;
+    // plant steps per controller loop
+    private static final int SUBSTEPS = 4;
+    // weight of each finished move in the correction
+    private static final double CORRECTION_GAIN = 0.2;
+    private static final double MIN_CORRECTION = 0.5;
+    private static final double MAX_CORRECTION = 3;
+
+    private final double kP;
+    private final double kS;
+    private final double kV;
+    private final double kA;
+    private final double kG;
+    private final double maxVelocity;
+    private final double period;
+    private final double horizon;
+
+    private double correction = 1;
+
+    /**
+     * @param maxVelocity Top speed of the mechanism in position units per second.
+     * @param period Controller period in seconds.
+     * @param horizon Longest time to predict, later arrivals are reported as infinite.
+     */
+    public ArrivalPredictor(double kP, double kS, double kV, double kA, double kG, double maxVelocity, double period, double horizon) {
+        this.kP = kP;
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.kG = kG;
+        this.maxVelocity = maxVelocity;
+        this.period = period;
+        this.horizon = horizon;
+    }
+
+    /**
+     * @return Seconds until the position is first within tolerance of the setpoint, 0 if it already is and
+     * {@code Double.POSITIVE_INFINITY} if it will not be within the horizon.
+     */
+    public double predict(double position, double velocity, double setpoint, double tolerance) {
+        if (Math.abs(setpoint - position) <= tolerance) return 0;
+        final double step = period / SUBSTEPS;
+        double time = 0;
+        while (time < horizon) {
+            final double error = setpoint - position;
+            final double voltage = MathUtil.clamp(kP * error + kS * Math.signum(error) + kG, -MAX_VOLTAGE, MAX_VOLTAGE);
+            for (int i = 0; i < SUBSTEPS; i++) {
+                final double acceleration = (voltage - kS * Math.signum(velocity) - kV * velocity - kG) / kA;
+                velocity = MathUtil.clamp(velocity + acceleration * step, -maxVelocity, maxVelocity);
+                position += velocity * step;
+                time += step;
+                if (Math.abs(setpoint - position) <= tolerance) return time * correction;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Corrects later predictions with a finished move.
+     * @param predicted Prediction from when the move started.
+     * @param actual Seconds the move took.
+     */
+    public void recordMove(double predicted, double actual) {
+        if (!(predicted > 0) || Double.isInfinite(predicted) || !(actual > 0)) return;
+        final double error = actual / predicted - 1;
+        correction = MathUtil.clamp(correction * (1 + CORRECTION_GAIN * error), MIN_CORRECTION, MAX_CORRECTION);
+    }
+
+    /**
+     * @return Factor predictions are scaled by, 1 until moves have been recorded.
+     */
+    public double getCorrection() {
+        return correction;
+    }
+}
@@ -0,0 +1,154 @@
+package frc.team3128.util;
+
+import static frc.team3128.Constants.HopperConstants.HPPR_SENSOR;
+import static frc.team3128.Constants.ShooterConstants.SHTR_SENSOR;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+
+/**
+ * Captures beam break edges with DIO interrupts instead of polling once per loop.
+ * <p>
+ * Every edge is timestamped by the FPGA. A sensor can be armed to stop motors the moment it is blocked: the interrupt
+ * thread cuts the armed {@link MotorOutputs} channels itself instead of waiting up to a loop for the polled flags and
+ * the state machine to react. Arming is one shot and is cleared by the stop.
+ * <p>
+ * The command layer sees edges through {@link #blocked} and {@link #cleared}, true for the loop after an edge.
+ */
+public class BeamBreakInterrupts {
+
+    public static final int SHOOTER = 0;
+    public static final int HOPPER = 1;
+    private static final int SENSORS = 2;
+
+    private static BeamBreakInterrupts instance;
+
+    private final AsynchronousInterrupt[] interrupts = new AsynchronousInterrupt[SENSORS];
+    // written by the interrupt threads
+    private final AtomicIntegerArray armed = new AtomicIntegerArray(SENSORS);
+    private final AtomicIntegerArray blockedCounts = new AtomicIntegerArray(SENSORS);
+    private final AtomicIntegerArray clearedCounts = new AtomicIntegerArray(SENSORS);
+    private final double[] blockedTimes = new double[SENSORS];
+    private final double[] clearedTimes = new double[SENSORS];
+
+    // read by the main loop
+    private final int[] seenBlocked = new int[SENSORS];
+    private final int[] seenCleared = new int[SENSORS];
+    private final boolean[] blockedThisLoop = new boolean[SENSORS];
+    private final boolean[] clearedThisLoop = new boolean[SENSORS];
+    private final double[] lastBlockedTimes = new double[SENSORS];
+    private final double[] lastClearedTimes = new double[SENSORS];
+
+    public static synchronized BeamBreakInterrupts getInstance() {
+        if (instance == null) {
+            instance = new BeamBreakInterrupts();
+        }
+        return instance;
+    }
+
+    private BeamBreakInterrupts() {
+        configure(SHOOTER, SHTR_SENSOR);
+        configure(HOPPER, HPPR_SENSOR);
+    }
+
+    private void configure(int sensor, DigitalInput input) {
+        final AsynchronousInterrupt interrupt = new AsynchronousInterrupt(input, (rising, falling) -> onEdge(sensor, rising, falling));
+        interrupt.setInterruptEdges(true, true);
+        // the handler reads the timestamps through this slot, so it has to be set before the first edge can arrive
+        interrupts[sensor] = interrupt;
+        interrupt.enable();
+    }
+
+    /**
+     * Runs on the interrupt thread. Beam breaks read low while blocked, so a falling edge is a note arriving.
+     */
+    private void onEdge(int sensor, boolean rising, boolean falling) {
+        if (falling) {
+            final int channels = armed.getAndSet(sensor, 0);
+            for (int channel = 0; channels >> channel != 0; channel++) {
+                if ((channels >> channel & 1) != 0) MotorOutputs.getInstance().cut(channel);
+            }
+            blockedTimes[sensor] = interrupts[sensor].getFallingTimestamp();
+            blockedCounts.incrementAndGet(sensor);
+        }
+        if (rising) {
+            clearedTimes[sensor] = interrupts[sensor].getRisingTimestamp();
+            clearedCounts.incrementAndGet(sensor);
+        }
+    }
+
+    /**
+     * Picks up the edges since the last loop, call once at the start of the loop.
+     */
+    public void update() {
+        for (int i = 0; i < SENSORS; i++) {
+            final int blocked = blockedCounts.get(i);
+            blockedThisLoop[i] = blocked != seenBlocked[i];
+            if (blockedThisLoop[i]) lastBlockedTimes[i] = blockedTimes[i];
+            seenBlocked[i] = blocked;
+
+            final int cleared = clearedCounts.get(i);
+            clearedThisLoop[i] = cleared != seenCleared[i];
+            if (clearedThisLoop[i]) lastClearedTimes[i] = clearedTimes[i];
+            seenCleared[i] = cleared;
+        }
+    }
+
+    /**
+     * Stops the given output channels as soon as the sensor is next blocked.
+     */
+    public void arm(int sensor, int... channels) {
+        int mask = 0;
+        for (final int channel : channels) {
+            if (channel >= 0) mask |= 1 << channel;
+        }
+        armed.set(sensor, mask);
+    }
+
+    public void disarm(int sensor) {
+        armed.set(sensor, 0);
+    }
+
+    public boolean isArmed(int sensor) {
+        return armed.get(sensor) != 0;
+    }
+
+    /**
+     * @return Trigger that is true for the loop after the sensor was blocked.
+     */
+    public Trigger blocked(int sensor) {
+        return new Trigger(()-> blockedThisLoop[sensor]);
+    }
+
+    /**
+     * @return Trigger that is true for the loop after the sensor was cleared.
+     */
+    public Trigger cleared(int sensor) {
+        return new Trigger(()-> clearedThisLoop[sensor]);
+    }
+
+    /**
+     * @return FPGA time in seconds the sensor was last blocked, as of the start of this loop.
+     */
+    public double getLastBlockedTime(int sensor) {
+        return lastBlockedTimes[sensor];
+    }
+
+    /**
+     * @return FPGA time in seconds the sensor was last cleared, as of the start of this loop.
+     */
+    public double getLastClearedTime(int sensor) {
+        return lastClearedTimes[sensor];
+    }
+
+    public boolean wasBlockedThisLoop(int sensor) {
+        return blockedThisLoop[sensor];
+    }
+
+    public boolean wasClearedThisLoop(int sensor) {
+        return clearedThisLoop[sensor];
+    }
+}
@@ -0,0 +1,81 @@
+package frc.team3128.util;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import common.utility.Log;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Counts commands the scheduler initializes for the first time. Any command built during a match has to be scheduled to
+ * run, so this is the rate commands are allocated at runtime and should stay at zero in teleop once every command is
+ * built at startup. Commands built inside a {@code defer} are not scheduled themselves and are not counted.
+ * <p>
+ * The rate is published to {@code LoopProfiler/CommandAllocations} and every new command seen in teleop is logged.
+ */
+public class CommandAllocationMonitor {
+
+    public static final double WINDOW = 1;
+
+    private static CommandAllocationMonitor instance;
+
+    private final Set<Command> seen = Collections.newSetFromMap(new WeakHashMap<Command, Boolean>());
+    private final DoublePublisher publisher;
+
+    private int windowCount = 0;
+    private double windowStart = 0;
+    private double rate = 0;
+    private int teleopAllocations = 0;
+
+    public static synchronized CommandAllocationMonitor getInstance() {
+        if (instance == null) {
+            instance = new CommandAllocationMonitor();
+        }
+        return instance;
+    }
+
+    private CommandAllocationMonitor() {
+        publisher = NetworkTableInstance.getDefault().getTable("LoopProfiler").getDoubleTopic("CommandAllocations").publish();
+    }
+
+    /**
+     * Meant to be passed to {@link edu.wpi.first.wpilibj2.command.CommandScheduler#onCommandInitialize}.
+     */
+    public void markInitialize(Command command) {
+        if (!seen.add(command)) return;
+        windowCount++;
+        if (DriverStation.isTeleopEnabled()) {
+            teleopAllocations++;
+            Log.info("CommandAllocations", "Command built in teleop: " + command.getName());
+        }
+    }
+
+    /**
+     * Publishes the rate once per window, call once per loop.
+     */
+    public void update() {
+        final double time = Timer.getFPGATimestamp();
+        if (windowStart == 0) windowStart = time;
+        if (time - windowStart < WINDOW) return;
+        rate = windowCount / (time - windowStart);
+        publisher.set(rate);
+        windowCount = 0;
+        windowStart = time;
+    }
+
+    /**
+     * @return New commands per second over the last window.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public int getTeleopAllocations() {
+        return teleopAllocations;
+    }
+}
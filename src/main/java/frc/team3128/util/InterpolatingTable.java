@@ -0,0 +1,118 @@
+package frc.team3128.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import common.utility.Log;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Sorted lookup table with linear interpolation between rows, stored in primitive arrays.
+ * <p>
+ * Lookups binary search the keys and never allocate. Keys outside the table clamp to the first or last row.
+ * Tables are loaded from CSV files in the deploy directory, one row per line as {@code key,value0,value1,...},
+ * blank lines and lines starting with {@code #} are ignored.
+ */
+public class InterpolatingTable {
+
+    private final double[] keys;
+    private final double[][] values;
+
+    /**
+     * @param rows Rows of {key, value0, value1, ...}, in any order.
+     */
+    public InterpolatingTable(double[]... rows) {
+        if (rows.length == 0) throw new IllegalArgumentException("Table needs at least one row");
+        final double[][] sorted = rows.clone();
+        Arrays.sort(sorted, (a, b) -> Double.compare(a[0], b[0]));
+
+        final int columns = sorted[0].length - 1;
+        keys = new double[sorted.length];
+        values = new double[columns][sorted.length];
+        for (int row = 0; row < sorted.length; row++) {
+            if (sorted[row].length != columns + 1) throw new IllegalArgumentException("Row " + row + " has the wrong number of columns");
+            if (row > 0 && sorted[row][0] == sorted[row - 1][0]) throw new IllegalArgumentException("Duplicate key " + sorted[row][0]);
+            keys[row] = sorted[row][0];
+            for (int column = 0; column < columns; column++) {
+                values[column][row] = sorted[row][column + 1];
+            }
+        }
+    }
+
+    /**
+     * Loads a table from the deploy directory, falling back to a single row if the file is missing or malformed.
+     * @param fileName Path relative to the deploy directory.
+     * @param fallback Row used if the file can not be loaded.
+     */
+    public static InterpolatingTable fromDeploy(String fileName, double... fallback) {
+        final Path path = Filesystem.getDeployDirectory().toPath().resolve(fileName);
+        try {
+            return fromCsv(path);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            Log.recoverable("InterpolatingTable", "Could not load " + path + ": " + e.getMessage());
+            return new InterpolatingTable(fallback);
+        }
+    }
+
+    public static InterpolatingTable fromCsv(Path path) throws IOException {
+        final ArrayList<double[]> rows = new ArrayList<double[]>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                final String[] cells = line.split(",");
+                final double[] row = new double[cells.length];
+                for (int i = 0; i < cells.length; i++) {
+                    row[i] = Double.parseDouble(cells[i].trim());
+                }
+                rows.add(row);
+            }
+        }
+        return new InterpolatingTable(rows.toArray(new double[0][]));
+    }
+
+    /**
+     * @param key Value to look up, clamped to the range of the table.
+     * @param column Index of the value column, not counting the key.
+     * @return Linearly interpolated value.
+     */
+    public double get(double key, int column) {
+        final double[] columnValues = values[column];
+        final int last = keys.length - 1;
+        if (key <= keys[0]) return columnValues[0];
+        if (key >= keys[last]) return columnValues[last];
+
+        // first index with a key greater than the lookup
+        int low = 1;
+        int high = last;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid] > key) high = mid;
+            else low = mid + 1;
+        }
+        final double t = (key - keys[low - 1]) / (keys[low] - keys[low - 1]);
+        return columnValues[low - 1] + (columnValues[low] - columnValues[low - 1]) * t;
+    }
+
+    public double get(double key) {
+        return get(key, 0);
+    }
+
+    public double getMinKey() {
+        return keys[0];
+    }
+
+    public double getMaxKey() {
+        return keys[keys.length - 1];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,160 @@
+package frc.team3128.util;
+
+/**
+ * Time optimal rest to rest motion profile with limited velocity, acceleration and jerk, the seven segment S-curve.
+ * <p>
+ * Planning is closed form and sampling only looks up the segment, so both are cheap enough to run in the loop and
+ * neither allocates. The peak velocity and acceleration are lowered when the move is too short to reach them.
+ */
+public class JerkLimitedProfile {
+
+    private static final int SEGMENTS = 7;
+
+    private double maxVelocity;
+    private double maxAcceleration;
+    private double maxJerk;
+
+    private final double[] durations = new double[SEGMENTS];
+    private final double[] jerks = new double[SEGMENTS];
+    private final double[] startTimes = new double[SEGMENTS];
+    private final double[] startPositions = new double[SEGMENTS];
+    private final double[] startVelocities = new double[SEGMENTS];
+    private final double[] startAccelerations = new double[SEGMENTS];
+    private double goal = 0;
+    private double totalTime = 0;
+
+    private double position = 0;
+    private double velocity = 0;
+    private double acceleration = 0;
+
+    public JerkLimitedProfile(double maxVelocity, double maxAcceleration, double maxJerk) {
+        setLimits(maxVelocity, maxAcceleration, maxJerk);
+    }
+
+    /**
+     * Takes effect on the next {@link #plan}.
+     */
+    public void setLimits(double maxVelocity, double maxAcceleration, double maxJerk) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0 || maxJerk <= 0) {
+            throw new IllegalArgumentException("Profile limits must be positive");
+        }
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+    }
+
+    /**
+     * Plans a move from rest at start to rest at goal.
+     */
+    public void plan(double start, double goal) {
+        this.goal = goal;
+        final double distance = Math.abs(goal - start);
+        final double direction = Math.signum(goal - start);
+
+        double peakVelocity = maxVelocity;
+        if (peakVelocity * getRampTime(peakVelocity) > distance) {
+            // too short to cruise, the velocity that speeds up and slows down over exactly the distance
+            final double jerkTime = maxAcceleration / maxJerk;
+            peakVelocity = maxAcceleration * (Math.sqrt(jerkTime * jerkTime + 4 * distance / maxAcceleration) - jerkTime) / 2;
+            if (peakVelocity < maxAcceleration * jerkTime) {
+                // too short to reach the acceleration limit either
+                peakVelocity = Math.pow(distance * Math.sqrt(maxJerk) / 2, 2.0 / 3.0);
+            }
+        }
+
+        final double jerkTime = Math.min(maxAcceleration / maxJerk, Math.sqrt(peakVelocity / maxJerk));
+        final double accelTime = peakVelocity == 0 ? 0 : peakVelocity / (maxJerk * jerkTime) - jerkTime;
+        final double cruiseTime = peakVelocity == 0 ? 0 : Math.max(0, distance / peakVelocity - 2 * jerkTime - accelTime);
+
+        durations[0] = jerkTime;
+        durations[1] = accelTime;
+        durations[2] = jerkTime;
+        durations[3] = cruiseTime;
+        durations[4] = jerkTime;
+        durations[5] = accelTime;
+        durations[6] = jerkTime;
+        jerks[0] = direction * maxJerk;
+        jerks[1] = 0;
+        jerks[2] = -direction * maxJerk;
+        jerks[3] = 0;
+        jerks[4] = -direction * maxJerk;
+        jerks[5] = 0;
+        jerks[6] = direction * maxJerk;
+
+        double time = 0;
+        double p = start;
+        double v = 0;
+        double a = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            startTimes[i] = time;
+            startPositions[i] = p;
+            startVelocities[i] = v;
+            startAccelerations[i] = a;
+            final double t = durations[i];
+            p += v * t + a * t * t / 2 + jerks[i] * t * t * t / 6;
+            v += a * t + jerks[i] * t * t / 2;
+            a += jerks[i] * t;
+            time += t;
+        }
+        totalTime = time;
+        sample(0);
+    }
+
+    /**
+     * @return Time to reach a velocity from rest and back to rest.
+     */
+    private double getRampTime(double velocity) {
+        if (velocity * maxJerk >= maxAcceleration * maxAcceleration) return velocity / maxAcceleration + maxAcceleration / maxJerk;
+        return 2 * Math.sqrt(velocity / maxJerk);
+    }
+
+    /**
+     * Moves the sampled state to a time since the start of the profile, read it with the getters.
+     */
+    public void sample(double time) {
+        if (time >= totalTime) {
+            position = goal;
+            velocity = 0;
+            acceleration = 0;
+            return;
+        }
+        int i = SEGMENTS - 1;
+        while (i > 0 && time < startTimes[i]) i--;
+        final double t = Math.max(0, time - startTimes[i]);
+        position = startPositions[i] + startVelocities[i] * t + startAccelerations[i] * t * t / 2 + jerks[i] * t * t * t / 6;
+        velocity = startVelocities[i] + startAccelerations[i] * t + jerks[i] * t * t / 2;
+        acceleration = startAccelerations[i] + jerks[i] * t;
+    }
+
+    public double getPosition() {
+        return position;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public double getGoal() {
+        return goal;
+    }
+
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    public double getMaxAcceleration() {
+        return maxAcceleration;
+    }
+
+    public double getMaxJerk() {
+        return maxJerk;
+    }
+}
@@ -0,0 +1,204 @@
+package frc.team3128.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import common.utility.Log;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Allocation-free profiler for the phases of the robot loop.
+ * <p>
+ * Each phase keeps the time it took in each of the last {@link #WINDOW} cycles in a primitive ring buffer.
+ * Rolling p50/p95/p99/max are published to NetworkTables one phase per cycle, so the publishing cost stays
+ * bounded no matter how many phases are registered. Whenever a cycle overruns, the leaf phase that took
+ * the longest is logged.
+ */
+public class LoopProfiler {
+
+    public static final int MAX_PHASES = 64;
+    public static final int WINDOW = 250;
+    public static final double LOOP_PERIOD_MS = 20;
+
+    private static final int[] PERCENTILES = {50, 95, 99};
+
+    private static LoopProfiler instance;
+
+    private final String[] names = new String[MAX_PHASES];
+    private final boolean[] aggregate = new boolean[MAX_PHASES];
+    private final double[][] samples = new double[MAX_PHASES][WINDOW];
+    private final int[] sampleCounts = new int[MAX_PHASES];
+    private final int[] heads = new int[MAX_PHASES];
+    private final long[] startTimes = new long[MAX_PHASES];
+    private final long[] cycleTimes = new long[MAX_PHASES];
+    private final boolean[] touched = new boolean[MAX_PHASES];
+    private final double[] lastTimes = new double[MAX_PHASES];
+    private final DoubleArrayPublisher[] publishers = new DoubleArrayPublisher[MAX_PHASES];
+
+    private final double[] scratch = new double[WINDOW];
+    private final double[] stats = new double[PERCENTILES.length + 1];
+
+    // keyed by name so commands rebuilt every time they are scheduled share a phase
+    private final HashMap<String, Integer> commandPhases = new HashMap<String, Integer>();
+    private final NetworkTable table;
+
+    private final int loopPhase;
+    private final int otherCommandsPhase;
+
+    private int numPhases = 0;
+    private int publishIndex = 0;
+    private long lastMark;
+    private int overruns = 0;
+
+    public static synchronized LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    private LoopProfiler() {
+        table = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+        loopPhase = register("Loop", true);
+        otherCommandsPhase = register("OtherCommands.execute", false);
+    }
+
+    /**
+     * Registers a leaf phase. Should be called at startup, not inside the loop.
+     * @param name Name the phase is published under.
+     * @return Id used to start and stop the phase.
+     */
+    public int register(String name) {
+        return register(name, false);
+    }
+
+    /**
+     * Registers a phase.
+     * @param name Name the phase is published under.
+     * @param isAggregate Whether the phase contains other phases, aggregates are never reported as the worst offender.
+     * @return Id used to start and stop the phase.
+     */
+    public synchronized int register(String name, boolean isAggregate) {
+        if (numPhases == MAX_PHASES) {
+            Log.recoverable("LoopProfiler", "Too many phases, ignoring " + name);
+            return otherCommandsPhase;
+        }
+        final int id = numPhases++;
+        names[id] = name;
+        aggregate[id] = isAggregate;
+        publishers[id] = table.getDoubleArrayTopic(name).publish();
+        return id;
+    }
+
+    public void start(int phase) {
+        startTimes[phase] = System.nanoTime();
+    }
+
+    public void stop(int phase) {
+        final long now = System.nanoTime();
+        if (startTimes[phase] == 0) return;
+        cycleTimes[phase] += now - startTimes[phase];
+        startTimes[phase] = 0;
+        touched[phase] = true;
+        lastMark = now;
+    }
+
+    /**
+     * Attributes the time since the last mark to a command, meant to be passed to
+     * {@link edu.wpi.first.wpilibj2.command.CommandScheduler#onCommandExecute}.
+     * The first command of each cycle also absorbs the trigger polling that runs before it. Commands past
+     * {@link #MAX_PHASES} go to the shared other commands phase.
+     */
+    public void markCommandExecute(Command command) {
+        final long now = System.nanoTime();
+        final String name = command.getName();
+        Integer phase = commandPhases.get(name);
+        if (phase == null) {
+            if (numPhases == MAX_PHASES) {
+                phase = otherCommandsPhase;
+            }
+            else {
+                phase = register(name + ".execute");
+                commandPhases.put(name, phase);
+            }
+        }
+        cycleTimes[phase] += now - lastMark;
+        touched[phase] = true;
+        lastMark = now;
+    }
+
+    public void beginCycle() {
+        start(loopPhase);
+        lastMark = startTimes[loopPhase];
+    }
+
+    public void endCycle() {
+        for (int i = 0; i < numPhases; i++) {
+            if (startTimes[i] != 0) stop(i);
+        }
+
+        int worst = -1;
+        for (int i = 0; i < numPhases; i++) {
+            lastTimes[i] = cycleTimes[i] / 1e6;
+            if (!touched[i]) continue;
+            record(i, cycleTimes[i] / 1e6);
+            if (!aggregate[i] && (worst == -1 || cycleTimes[i] > cycleTimes[worst])) worst = i;
+        }
+
+        final double loopTime = cycleTimes[loopPhase] / 1e6;
+        if (loopTime > LOOP_PERIOD_MS) {
+            overruns++;
+            Log.info("LoopProfiler", "Loop overrun " + overruns + ", " + loopTime + " ms, worst: "
+                + (worst == -1 ? "none" : names[worst] + " " + cycleTimes[worst] / 1e6 + " ms"));
+        }
+
+        Arrays.fill(cycleTimes, 0, numPhases, 0);
+        Arrays.fill(touched, 0, numPhases, false);
+
+        publish(publishIndex);
+        publishIndex = (publishIndex + 1) % numPhases;
+    }
+
+    private void record(int phase, double millis) {
+        samples[phase][heads[phase]] = millis;
+        heads[phase] = (heads[phase] + 1) % WINDOW;
+        if (sampleCounts[phase] < WINDOW) sampleCounts[phase]++;
+    }
+
+    private void publish(int phase) {
+        final int count = sampleCounts[phase];
+        if (count == 0) return;
+        System.arraycopy(samples[phase], 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            stats[i] = scratch[Math.max(0, (PERCENTILES[i] * count + 99) / 100 - 1)];
+        }
+        stats[PERCENTILES.length] = scratch[count - 1];
+        publishers[phase].set(stats);
+    }
+
+    /**
+     * @return Time a phase took in the last completed cycle in milliseconds, zero if it did not run.
+     */
+    public double getLastTime(int phase) {
+        return lastTimes[phase];
+    }
+
+    public int getNumPhases() {
+        return numPhases;
+    }
+
+    /**
+     * @return Cycles that took longer than {@link #LOOP_PERIOD_MS}, logged with the match.
+     */
+    public int getOverruns() {
+        return overruns;
+    }
+
+    public String getName(int phase) {
+        return names[phase];
+    }
+}
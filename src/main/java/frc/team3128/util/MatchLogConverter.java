@@ -0,0 +1,104 @@
+package frc.team3128.util;
+
+import static frc.team3128.util.MatchLogger.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+
+/**
+ * Converts a {@link MatchLogger} file to WPILOG for AdvantageScope.
+ * <p>
+ * Layout, big endian: the magic, version, column count and record size, then per column a type byte and a name, and
+ * for enums the number of constants and their names. Strings are a short length followed by UTF-8. Records follow
+ * back to back, the FPGA time in microseconds and then one double per column, until the first record with a zero time.
+ * <p>
+ * Run with {@code ./gradlew convertMatchLog -PlogFile=<file>}. Columns go under {@code MatchLog/}, and a value is only
+ * written when it changed.
+ */
+public class MatchLogConverter {
+
+    private static final String PREFIX = "MatchLog/";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) throw new IllegalArgumentException("Usage: MatchLogConverter <log file> [output wpilog]");
+        final File input = new File(args[0]);
+        final File output = new File(args.length > 1 ? args[1] : args[0].replaceFirst("\\" + EXTENSION + "$", "") + ".wpilog");
+        final long records = convert(input, output);
+        System.out.println("Converted " + records + " records to " + output);
+    }
+
+    /**
+     * @return Number of records converted.
+     */
+    public static long convert(File input, File output) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        final byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(input + " is not a match log");
+        final int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported match log version " + version);
+        final int numColumns = buffer.getInt();
+        final int recordSize = buffer.getInt();
+
+        final byte[] types = new byte[numColumns];
+        final String[][] constants = new String[numColumns][];
+        final DataLog log = new DataLog(output.getAbsoluteFile().getParent(), output.getName());
+        final DoubleLogEntry[] numbers = new DoubleLogEntry[numColumns];
+        final BooleanLogEntry[] booleans = new BooleanLogEntry[numColumns];
+        final StringLogEntry[] strings = new StringLogEntry[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            types[i] = buffer.get();
+            final String name = PREFIX + getString(buffer);
+            switch (types[i]) {
+                case BOOLEAN: booleans[i] = new BooleanLogEntry(log, name); break;
+                case ENUM:
+                    constants[i] = new String[buffer.getShort()];
+                    for (int j = 0; j < constants[i].length; j++) constants[i][j] = getString(buffer);
+                    strings[i] = new StringLogEntry(log, name);
+                    break;
+                default: numbers[i] = new DoubleLogEntry(log, name); break;
+            }
+        }
+
+        final double[] last = new double[numColumns];
+        Arrays.fill(last, Double.NaN);
+        long records = 0;
+        while (buffer.remaining() >= recordSize) {
+            final long timestamp = buffer.getLong();
+            if (timestamp == 0) break;
+            for (int i = 0; i < numColumns; i++) {
+                final double value = buffer.getDouble();
+                if (Double.compare(value, last[i]) == 0) continue;
+                last[i] = value;
+                switch (types[i]) {
+                    case BOOLEAN: booleans[i].append(value != 0, timestamp); break;
+                    case ENUM: strings[i].append(value < 0 || value >= constants[i].length ? "null" : constants[i][(int) value], timestamp); break;
+                    default: numbers[i].append(value, timestamp); break;
+                }
+            }
+            records++;
+        }
+        log.close();
+        return records;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
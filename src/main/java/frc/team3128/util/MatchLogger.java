@@ -0,0 +1,263 @@
+package frc.team3128.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import common.utility.Log;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Structured match log that stays cheap enough to run every loop.
+ * <p>
+ * Columns are registered at startup and fixed once {@link #start()} is called. Each loop {@link #record()} writes one
+ * record, the FPGA time followed by every column as a double, into a preallocated direct buffer of {@link #RING_CAPACITY}
+ * records. A background thread copies new records into a memory mapped file in {@link #LOG_DIRECTORY} and forces it
+ * to the USB stick every {@link #FORCE_PERIOD} seconds. If the writer falls a whole ring behind, records are dropped
+ * rather than blocking the loop.
+ * <p>
+ * The file starts with the schema, see {@link MatchLogConverter} for the layout and conversion to WPILOG.
+ */
+public class MatchLogger {
+
+    public static final String LOG_DIRECTORY = "/u/logs";
+    public static final String EXTENSION = ".mlog";
+    public static final byte[] MAGIC = "3128MLOG".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+
+    // about 10 s of records at 50 Hz
+    public static final int RING_CAPACITY = 512;
+    // records mapped at a time, 5 minutes at 50 Hz
+    public static final int RECORDS_PER_CHUNK = 15000;
+    public static final double FLUSH_PERIOD = 0.1;
+    public static final double FORCE_PERIOD = 1;
+
+    public static final byte NUMBER = 0;
+    public static final byte BOOLEAN = 1;
+    public static final byte ENUM = 2;
+
+    private static MatchLogger instance;
+
+    private final ArrayList<String> names = new ArrayList<String>();
+    private final ArrayList<Byte> types = new ArrayList<Byte>();
+    private final ArrayList<String[]> constants = new ArrayList<String[]>();
+    private final ArrayList<DoubleSupplier> readers = new ArrayList<DoubleSupplier>();
+
+    private DoubleSupplier[] columns;
+    private int recordSize;
+    private ByteBuffer ring;
+    // writer thread view of the ring, its position and limit select the record being copied
+    private ByteBuffer ringReader;
+    private volatile long written = 0;
+    private volatile long flushed = 0;
+    private volatile boolean running = false;
+    private int dropped = 0;
+
+    private FileChannel channel;
+    private File file;
+    private long headerSize;
+    private MappedByteBuffer chunk;
+    private int chunkIndex = 0;
+    private int chunkRecords = 0;
+
+    public static synchronized MatchLogger getInstance() {
+        if (instance == null) {
+            instance = new MatchLogger();
+        }
+        return instance;
+    }
+
+    private MatchLogger() {}
+
+    public synchronized void addNumber(String name, DoubleSupplier reader) {
+        add(name, NUMBER, null, reader);
+    }
+
+    public synchronized void addBoolean(String name, BooleanSupplier reader) {
+        add(name, BOOLEAN, null, ()-> reader.getAsBoolean() ? 1 : 0);
+    }
+
+    /**
+     * Logs the ordinal of an enum, -1 for null. The constant names are stored in the schema.
+     */
+    public synchronized <E extends Enum<E>> void addEnum(String name, Class<E> type, Supplier<E> reader) {
+        final E[] values = type.getEnumConstants();
+        final String[] valueNames = new String[values.length];
+        for (int i = 0; i < values.length; i++) valueNames[i] = values[i].name();
+        add(name, ENUM, valueNames, ()-> {
+            final E value = reader.get();
+            return value == null ? -1 : value.ordinal();
+        });
+    }
+
+    private void add(String name, byte type, String[] valueNames, DoubleSupplier reader) {
+        if (columns != null) {
+            Log.recoverable("MatchLogger", "Logger already started, ignoring " + name);
+            return;
+        }
+        names.add(name);
+        types.add(type);
+        constants.add(valueNames);
+        readers.add(reader);
+    }
+
+    /**
+     * Fixes the schema, creates the log file and starts the writer thread.
+     */
+    public synchronized void start() {
+        if (columns != null) return;
+        columns = readers.toArray(new DoubleSupplier[0]);
+        recordSize = Long.BYTES + columns.length * Double.BYTES;
+
+        final File directory = new File(LOG_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.recoverable("MatchLogger", "No log directory " + LOG_DIRECTORY + ", match logging disabled");
+            return;
+        }
+        file = new File(directory, "match_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + EXTENSION);
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            final ByteBuffer header = writeHeader();
+            headerSize = header.remaining();
+            while (header.hasRemaining()) channel.write(header);
+            mapNextChunk();
+        }
+        catch (IOException e) {
+            Log.recoverable("MatchLogger", "Could not create " + file + ": " + e.getMessage());
+            return;
+        }
+
+        ring = ByteBuffer.allocateDirect(RING_CAPACITY * recordSize);
+        ringReader = ring.duplicate();
+        running = true;
+        final Thread writer = new Thread(this::writeLoop, "MatchLogger");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+        Log.info("MatchLogger", "Logging " + columns.length + " columns to " + file);
+    }
+
+    private ByteBuffer writeHeader() {
+        final ArrayList<byte[]> strings = new ArrayList<byte[]>();
+        int size = MAGIC.length + Integer.BYTES * 3;
+        for (int i = 0; i < columns.length; i++) {
+            strings.add(names.get(i).getBytes(StandardCharsets.UTF_8));
+            size += 1 + Short.BYTES + strings.get(strings.size() - 1).length;
+            if (types.get(i) != ENUM) continue;
+            size += Short.BYTES;
+            for (final String constant : constants.get(i)) {
+                strings.add(constant.getBytes(StandardCharsets.UTF_8));
+                size += Short.BYTES + strings.get(strings.size() - 1).length;
+            }
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(size);
+        header.put(MAGIC).putInt(VERSION).putInt(columns.length).putInt(recordSize);
+        int string = 0;
+        for (int i = 0; i < columns.length; i++) {
+            header.put(types.get(i));
+            putString(header, strings.get(string++));
+            if (types.get(i) != ENUM) continue;
+            header.putShort((short) constants.get(i).length);
+            for (int j = 0; j < constants.get(i).length; j++) putString(header, strings.get(string++));
+        }
+        return header.flip();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putShort((short) string.length).put(string);
+    }
+
+    /**
+     * Writes one record, call once per loop after everything it logs has run.
+     */
+    public void record() {
+        if (!running) return;
+        final long index = written;
+        if (index - flushed >= RING_CAPACITY) {
+            dropped++;
+            return;
+        }
+        int offset = (int) (index % RING_CAPACITY) * recordSize;
+        ring.putLong(offset, RobotController.getFPGATime());
+        offset += Long.BYTES;
+        for (final DoubleSupplier column : columns) {
+            ring.putDouble(offset, column.getAsDouble());
+            offset += Double.BYTES;
+        }
+        written = index + 1;
+    }
+
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        while (running) {
+            LockSupport.parkNanos((long) (FLUSH_PERIOD * 1e9));
+            try {
+                flush();
+                if (System.nanoTime() - lastForce > FORCE_PERIOD * 1e9) {
+                    chunk.force();
+                    lastForce = System.nanoTime();
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                running = false;
+                Log.recoverable("MatchLogger", "Stopped logging to " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        final long end = written;
+        for (long i = flushed; i < end; i++) {
+            if (chunkRecords == RECORDS_PER_CHUNK) mapNextChunk();
+            final int offset = (int) (i % RING_CAPACITY) * recordSize;
+            ringReader.limit(offset + recordSize).position(offset);
+            chunk.position(chunkRecords * recordSize);
+            chunk.put(ringReader);
+            chunkRecords++;
+            flushed = i + 1;
+        }
+    }
+
+    /**
+     * Maps the next part of the file. Chunks hold whole records, so records are contiguous after the header.
+     */
+    private void mapNextChunk() throws IOException {
+        if (chunk != null) chunk.force();
+        final long chunkSize = (long) RECORDS_PER_CHUNK * recordSize;
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + chunkIndex * chunkSize, chunkSize);
+        chunkIndex++;
+        chunkRecords = 0;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Records dropped because the writer fell a whole ring behind.
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public int getNumColumns() {
+        return names.size();
+    }
+}
@@ -0,0 +1,36 @@
+package frc.team3128.util;
+
+import java.util.function.DoubleSupplier;
+
+import common.hardware.motorcontroller.NAR_Motor;
+
+/**
+ * Where a mechanism's position and velocity are measured from.
+ * <p>
+ * Subsystems read their motor through {@link #of(NAR_Motor)}. The headless simulation swaps in its models, so the
+ * subsystem code, controllers and setpoint checks run the same against them as on the robot.
+ */
+public interface MechanismIO {
+
+    double getPosition();
+
+    double getVelocity();
+
+    static MechanismIO of(NAR_Motor motor) {
+        return of(motor::getPosition, motor::getVelocity);
+    }
+
+    static MechanismIO of(DoubleSupplier position, DoubleSupplier velocity) {
+        return new MechanismIO() {
+            @Override
+            public double getPosition() {
+                return position.getAsDouble();
+            }
+
+            @Override
+            public double getVelocity() {
+                return velocity.getAsDouble();
+            }
+        };
+    }
+}
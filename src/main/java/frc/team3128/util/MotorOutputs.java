@@ -0,0 +1,168 @@
+package frc.team3128.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import common.hardware.motorcontroller.NAR_Motor;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Central output stage for open loop motor writes.
+ * <p>
+ * Commands request outputs during the loop, the last request per motor wins, and {@link #flush()} sends them once at
+ * the end of the scheduler run. Requests within {@link #TOLERANCE} of the last sent value are dropped, apart from a
+ * resend every {@link #KEEPALIVE} seconds. The CAN frames sent per second are published per motor.
+ * <p>
+ * {@link #cut} stops a motor immediately from any thread, bypassing the loop. The motor wrappers are not thread safe,
+ * so every write to a motor holds that motor's lock and the interrupt and main threads never write one at once.
+ */
+public class MotorOutputs {
+
+    public static final int MAX_CHANNELS = 16;
+    public static final double TOLERANCE = 1e-3;
+    public static final double KEEPALIVE = 1.0;
+
+    private static MotorOutputs instance;
+
+    private final NAR_Motor[] motors = new NAR_Motor[MAX_CHANNELS];
+    private final String[] names = new String[MAX_CHANNELS];
+    private final double[] requested = new double[MAX_CHANNELS];
+    private final boolean[] pending = new boolean[MAX_CHANNELS];
+    private final double[] sent = new double[MAX_CHANNELS];
+    private final double[] sentTimes = new double[MAX_CHANNELS];
+    private final boolean[] valid = new boolean[MAX_CHANNELS];
+    private final int[] frames = new int[MAX_CHANNELS];
+    private final int[] dropped = new int[MAX_CHANNELS];
+    private final DoublePublisher[] rates = new DoublePublisher[MAX_CHANNELS];
+    private final AtomicIntegerArray cuts = new AtomicIntegerArray(MAX_CHANNELS);
+    private final NetworkTable table;
+
+    private int numChannels = 0;
+    private double rateStart = -1;
+
+    public static synchronized MotorOutputs getInstance() {
+        if (instance == null) {
+            instance = new MotorOutputs();
+        }
+        return instance;
+    }
+
+    private MotorOutputs() {
+        table = NetworkTableInstance.getDefault().getTable("CAN Frames");
+    }
+
+    /**
+     * @param name Name the frame rate is published under.
+     * @param motor Motor the channel writes to.
+     * @return Channel used to request outputs.
+     */
+    public synchronized int register(String name, NAR_Motor motor) {
+        if (numChannels == MAX_CHANNELS) throw new IllegalStateException("Too many output channels, increase MAX_CHANNELS");
+        final int channel = numChannels++;
+        motors[channel] = motor;
+        names[channel] = name;
+        rates[channel] = table.getDoubleTopic(name).publish();
+        return channel;
+    }
+
+    /**
+     * Requests a percent output, sent at the end of the loop.
+     */
+    public void set(int channel, double power) {
+        requested[channel] = power;
+        pending[channel] = true;
+    }
+
+    /**
+     * Forces every channel to be resent on the next flush, call when the robot is re-enabled.
+     */
+    public void invalidate() {
+        for (int i = 0; i < numChannels; i++) {
+            valid[i] = false;
+            if (!pending[i] && sentTimes[i] > 0) {
+                requested[i] = sent[i];
+                pending[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Stops a motor right away, safe to call from an interrupt handler. A request made in the loop the cut happened in
+     * was decided without knowing about it and is dropped at the next flush, unless it also stops the motor.
+     */
+    public void cut(int channel) {
+        synchronized (motors[channel]) {
+            motors[channel].set(0);
+            cuts.set(channel, 1);
+        }
+    }
+
+    public void flush() {
+        final double time = Timer.getFPGATimestamp();
+        for (int i = 0; i < numChannels; i++) {
+            if (cuts.getAndSet(i, 0) == 1) {
+                sent[i] = 0;
+                sentTimes[i] = time;
+                valid[i] = true;
+                if (pending[i] && requested[i] != 0) {
+                    pending[i] = false;
+                    dropped[i]++;
+                }
+            }
+            if (!pending[i]) continue;
+            pending[i] = false;
+            final double value = requested[i];
+            if (valid[i] && Math.abs(value - sent[i]) < TOLERANCE && time - sentTimes[i] < KEEPALIVE) {
+                dropped[i]++;
+                continue;
+            }
+            synchronized (motors[i]) {
+                // a cut since the check above wins, the next flush records it
+                if (cuts.get(i) == 1) continue;
+                motors[i].set(value);
+            }
+            sent[i] = value;
+            sentTimes[i] = time;
+            valid[i] = true;
+            frames[i]++;
+        }
+
+        if (rateStart < 0) rateStart = time;
+        final double elapsed = time - rateStart;
+        if (elapsed >= 1) {
+            for (int i = 0; i < numChannels; i++) {
+                rates[i].set(frames[i] / elapsed);
+                frames[i] = 0;
+            }
+            rateStart = time;
+        }
+    }
+
+    /**
+     * @return Channel registered under a name, or -1 if there is none.
+     */
+    public int getChannel(String name) {
+        for (int i = 0; i < numChannels; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public String getName(int channel) {
+        return names[channel];
+    }
+
+    public int getNumChannels() {
+        return numChannels;
+    }
+
+    public double getLastSent(int channel) {
+        return sent[channel];
+    }
+
+    public int getDropped(int channel) {
+        return dropped[channel];
+    }
+}
@@ -0,0 +1,138 @@
+package frc.team3128.util;
+
+import static frc.team3128.Constants.FocalAimConstants.*;
+import static frc.team3128.Constants.ShooterConstants.*;
+import static frc.team3128.Constants.SwerveConstants.robotLength;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.team3128.Constants.FieldConstants;
+import frc.team3128.Robot;
+import frc.team3128.subsystems.Swerve;
+
+/**
+ * Solves for a virtual speaker target that compensates for the robot's field velocity.
+ * <p>
+ * The note keeps the robot's velocity for its time of flight, so aiming at the focal point minus velocity times
+ * time of flight lands the note on the focal point. Time of flight depends on distance to the virtual target, so the
+ * solver iterates up to {@code SOLVER_MAX_ITERATIONS} times or until the virtual target moves less than
+ * {@code SOLVER_TOLERANCE}. Everything is kept in primitive fields so solving never allocates.
+ */
+public class MovingShotSolver {
+
+    private static MovingShotSolver instance;
+
+    private final double[] historySample = new double[PoseHistory.SAMPLE_SIZE];
+
+    private double virtualX, virtualY;
+    private double heading;
+    private double distance;
+    private double rpm;
+    private double timeOfFlight;
+    private int iterations;
+    private boolean converged;
+    private double lastUpdate = -1;
+
+    public static synchronized MovingShotSolver getInstance() {
+        if (instance == null) {
+            instance = new MovingShotSolver();
+        }
+        return instance;
+    }
+
+    private MovingShotSolver() {}
+
+    /**
+     * Solves against the current swerve pose and the velocity from pose history.
+     */
+    public void update() {
+        final Swerve swerve = Swerve.getInstance();
+        final Pose2d pose = swerve.getPose();
+        double vx = 0;
+        double vy = 0;
+        if (swerve.getPoseHistory().latest(historySample)) {
+            vx = historySample[PoseHistory.VX];
+            vy = historySample[PoseHistory.VY];
+        }
+        final double targetX = Robot.getAlliance() == Alliance.Red ? FieldConstants.FIELD_X_LENGTH - focalPoint.getX() : focalPoint.getX();
+        solve(pose.getX(), pose.getY(), vx, vy, targetX, focalPoint.getY());
+        lastUpdate = Timer.getFPGATimestamp();
+    }
+
+    /**
+     * Updates the solution if it was not already solved this loop.
+     */
+    public void updateIfStale() {
+        if (Timer.getFPGATimestamp() - lastUpdate > SOLVER_STALE_TIME) update();
+    }
+
+    /**
+     * @param x Robot field x in meters.
+     * @param y Robot field y in meters.
+     * @param vx Robot field x velocity in meters per second.
+     * @param vy Robot field y velocity in meters per second.
+     * @param targetX Focal point x in meters.
+     * @param targetY Focal point y in meters.
+     */
+    public void solve(double x, double y, double vx, double vy, double targetX, double targetY) {
+        virtualX = targetX;
+        virtualY = targetY;
+        converged = false;
+        iterations = 0;
+        while (iterations < SOLVER_MAX_ITERATIONS) {
+            iterations++;
+            distance = Math.hypot(virtualX - x, virtualY - y) - robotLength / 2.0;
+            timeOfFlight = SHOT_TABLE.get(distance, SHOT_TIME_OF_FLIGHT);
+            final double nextX = targetX - vx * timeOfFlight;
+            final double nextY = targetY - vy * timeOfFlight;
+            final double error = Math.hypot(nextX - virtualX, nextY - virtualY);
+            virtualX = nextX;
+            virtualY = nextY;
+            if (error < SOLVER_TOLERANCE) {
+                converged = true;
+                break;
+            }
+        }
+        distance = Math.hypot(virtualX - x, virtualY - y) - robotLength / 2.0;
+        heading = Math.toDegrees(Math.atan2(virtualY - y, virtualX - x));
+        rpm = SHOT_TABLE.get(distance, SHOT_RPM);
+    }
+
+    /**
+     * @return Robot heading in degrees that points the shooter at the virtual target.
+     */
+    public double getHeading() {
+        updateIfStale();
+        return heading;
+    }
+
+    public double getRPM() {
+        updateIfStale();
+        return rpm;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getTimeOfFlight() {
+        return timeOfFlight;
+    }
+
+    public double getVirtualX() {
+        return virtualX;
+    }
+
+    public double getVirtualY() {
+        return virtualY;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+}
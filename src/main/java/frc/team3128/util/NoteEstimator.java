@@ -0,0 +1,233 @@
+package frc.team3128.util;
+
+import static frc.team3128.Constants.AmperConstants.ROLLER_STALL_THRESHOLD;
+import static frc.team3128.Constants.Flags.*;
+import static frc.team3128.Constants.HopperConstants.HPPR_STALL_POWER;
+import static frc.team3128.Constants.NoteTrackingConstants.*;
+
+import common.utility.Log;
+import frc.team3128.subsystems.Shooter;
+
+/**
+ * Tracks where each note in the robot is by fusing the beam breaks with the hopper current, the intake angle and the
+ * commanded outputs, and sets the note flags in the {@link SensorSnapshot} from that model.
+ * <p>
+ * A beam break edge the model expects, like the shooter beam blocking while a note is being handed off, is taken on its
+ * first sample so the handoff stops as early as possible. An edge the model does not expect has to hold for
+ * {@code BEAM_DEBOUNCE} seconds of loop timestamps first, so single glitches do not fire transitions. A note that
+ * leaves both beams between the hopper and shooter stays tracked until it reaches the shooter or times out, so the
+ * flags never read empty in the middle of a handoff.
+ */
+public class NoteEstimator {
+
+    public enum NotePosition {
+        // past the intake rollers, before the hopper beam
+        INTAKE,
+        HOPPER,
+        // between the hopper and shooter beams
+        TRANSFER,
+        SHOOTER
+    }
+
+    public static final int MAX_NOTES = 2;
+
+    private static NoteEstimator instance;
+
+    private final SensorSnapshot snapshot = SensorSnapshot.getInstance();
+
+    // front note first
+    private final NotePosition[] notes = new NotePosition[MAX_NOTES];
+    private final double[] positionTimes = new double[MAX_NOTES];
+    private int numNotes = 0;
+
+    private boolean hopperBlocked = false;
+    private boolean shooterBlocked = false;
+    private double hopperPending = -1;
+    private double shooterPending = -1;
+    private double intakeCurrentStart = -1;
+    private double ampStallStart = -1;
+
+    private int hopperChannel = -1;
+    private int kickerChannel = -1;
+    private int rejectedGlitches = 0;
+
+    public static synchronized NoteEstimator getInstance() {
+        if (instance == null) {
+            instance = new NoteEstimator();
+        }
+        return instance;
+    }
+
+    private NoteEstimator() {}
+
+    /**
+     * Updates the model from this loop's snapshot and sets the note flags, call right after the snapshot is sampled.
+     */
+    public void update() {
+        final double time = snapshot.getTimestamp();
+        if (hopperChannel == -1) {
+            hopperChannel = MotorOutputs.getInstance().getChannel("Hopper");
+            kickerChannel = MotorOutputs.getInstance().getChannel("Kicker");
+        }
+
+        // beam breaks read low while blocked
+        final boolean hopperRaw = !snapshot.getBoolean(HOPPER_SENSOR);
+        if (hopperRaw != hopperBlocked) {
+            final boolean expected = hopperRaw ? isIntaking() || find(NotePosition.INTAKE) != -1 : isAdvancing() || getHopperPower() < 0;
+            if (hopperPending < 0) hopperPending = time;
+            if (expected || time - hopperPending >= BEAM_DEBOUNCE) {
+                hopperBlocked = hopperRaw;
+                hopperPending = -1;
+                if (hopperRaw) onHopperBlocked(time);
+                else onHopperCleared(time);
+            }
+        }
+        else if (hopperPending >= 0) {
+            hopperPending = -1;
+            rejectedGlitches++;
+        }
+
+        final boolean shooterRaw = !snapshot.getBoolean(SHOOTER_SENSOR);
+        if (shooterRaw != shooterBlocked) {
+            final boolean expected = shooterRaw ? find(NotePosition.TRANSFER) != -1 || find(NotePosition.HOPPER) != -1 : isShooting();
+            if (shooterPending < 0) shooterPending = time;
+            if (expected || time - shooterPending >= BEAM_DEBOUNCE) {
+                shooterBlocked = shooterRaw;
+                shooterPending = -1;
+                if (shooterRaw) onShooterBlocked(time);
+                else onShooterCleared(time, expected);
+            }
+        }
+        else if (shooterPending >= 0) {
+            shooterPending = -1;
+            rejectedGlitches++;
+        }
+
+        updateIntake(time);
+        timeOut(time);
+
+        snapshot.set(SHOOTER_NOTE, find(NotePosition.SHOOTER) != -1);
+        snapshot.set(HOPPER_NOTE, find(NotePosition.HOPPER) != -1 || find(NotePosition.TRANSFER) != -1);
+
+        if (snapshot.get(AMPER_ROLLER_CURRENT) <= ROLLER_STALL_THRESHOLD) ampStallStart = -1;
+        else if (ampStallStart < 0) ampStallStart = time;
+        snapshot.set(AMPER_STALLED, ampStallStart >= 0 && time - ampStallStart >= AMP_STALL_DEBOUNCE);
+    }
+
+    /**
+     * A note is at the intake once the hopper pulls on it with the intake deployed.
+     */
+    private void updateIntake(double time) {
+        if (!isIntaking() || snapshot.get(HOPPER_CURRENT) < HOPPER_NOTE_CURRENT) {
+            intakeCurrentStart = -1;
+            return;
+        }
+        if (intakeCurrentStart < 0) intakeCurrentStart = time;
+        if (time - intakeCurrentStart >= BEAM_DEBOUNCE && find(NotePosition.INTAKE) == -1 && !hopperBlocked && numNotes < MAX_NOTES) {
+            add(NotePosition.INTAKE, time);
+        }
+    }
+
+    private void onHopperBlocked(double time) {
+        final int note = find(NotePosition.INTAKE);
+        if (note != -1) move(note, NotePosition.HOPPER, time);
+        else if (numNotes < MAX_NOTES) add(NotePosition.HOPPER, time);
+        else Log.info("NoteEstimator", "Hopper blocked with " + numNotes + " notes tracked");
+    }
+
+    private void onHopperCleared(double time) {
+        final int note = find(NotePosition.HOPPER);
+        if (note == -1) return;
+        if (getHopperPower() < 0) remove(note);
+        else move(note, NotePosition.TRANSFER, time);
+    }
+
+    private void onShooterBlocked(double time) {
+        int note = find(NotePosition.TRANSFER);
+        if (note == -1) note = find(NotePosition.HOPPER);
+        if (note != -1) move(note, NotePosition.SHOOTER, time);
+        else if (numNotes < MAX_NOTES) add(NotePosition.SHOOTER, time);
+    }
+
+    /**
+     * A note only leaves through the shooter when it is being shot, otherwise it slid back and is still in the robot.
+     */
+    private void onShooterCleared(double time, boolean shot) {
+        final int note = find(NotePosition.SHOOTER);
+        if (note == -1) return;
+        if (shot) remove(note);
+        else move(note, NotePosition.TRANSFER, time);
+    }
+
+    /**
+     * Drops notes that never reached the next beam, they were spat out or lost.
+     */
+    private void timeOut(double time) {
+        for (int i = numNotes - 1; i >= 0; i--) {
+            if ((notes[i] == NotePosition.INTAKE || notes[i] == NotePosition.TRANSFER) && time - positionTimes[i] > HANDOFF_TIMEOUT) {
+                Log.info("NoteEstimator", "Lost note at " + notes[i]);
+                remove(i);
+            }
+        }
+    }
+
+    private boolean isIntaking() {
+        return snapshot.get(INTAKE_ANGLE) > INTAKE_DEPLOYED_ANGLE && getHopperPower() > HPPR_STALL_POWER;
+    }
+
+    private boolean isAdvancing() {
+        return getHopperPower() > HPPR_STALL_POWER && find(NotePosition.SHOOTER) == -1;
+    }
+
+    private boolean isShooting() {
+        return kickerChannel != -1 && MotorOutputs.getInstance().getLastSent(kickerChannel) > 0 && Shooter.getInstance().getSetpoint() > 0;
+    }
+
+    private double getHopperPower() {
+        return hopperChannel == -1 ? 0 : MotorOutputs.getInstance().getLastSent(hopperChannel);
+    }
+
+    private int find(NotePosition position) {
+        for (int i = 0; i < numNotes; i++) {
+            if (notes[i] == position) return i;
+        }
+        return -1;
+    }
+
+    private void add(NotePosition position, double time) {
+        notes[numNotes] = position;
+        positionTimes[numNotes] = time;
+        numNotes++;
+    }
+
+    private void move(int note, NotePosition position, double time) {
+        notes[note] = position;
+        positionTimes[note] = time;
+    }
+
+    private void remove(int note) {
+        for (int i = note; i < numNotes - 1; i++) {
+            notes[i] = notes[i + 1];
+            positionTimes[i] = positionTimes[i + 1];
+        }
+        notes[--numNotes] = null;
+    }
+
+    /**
+     * @return Position of a note, front note first, or null if there are fewer notes.
+     */
+    public NotePosition getNote(int note) {
+        return note < numNotes ? notes[note] : null;
+    }
+
+    public int getNumNotes() {
+        return numNotes;
+    }
+
+    /**
+     * @return Beam break edges that did not hold long enough to be taken.
+     */
+    public int getRejectedGlitches() {
+        return rejectedGlitches;
+    }
+}
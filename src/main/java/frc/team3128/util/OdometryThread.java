@@ -0,0 +1,251 @@
+package frc.team3128.util;
+
+import static frc.team3128.Constants.SwerveConstants.*;
+import static frc.team3128.Constants.VisionConstants.*;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import common.core.swerve.SwerveModule;
+import common.hardware.motorcontroller.NAR_TalonFX;
+import common.utility.Log;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Runs swerve odometry at {@code ODOMETRY_FREQUENCY} on its own thread.
+ * <p>
+ * The thread blocks on the module drive and steer signals of the drivetrain CANivore, latency compensates them,
+ * and updates a pose estimator with the sample timestamp. The Pigeon2 lives on the roboRIO bus so its yaw can not
+ * be waited on together with the modules, instead it is refreshed and latency compensated right after each wait. It
+ * stays at {@code GYRO_FREQUENCY} to leave the roboRIO bus load unchanged.
+ * <p>
+ * Phoenix hands out one status signal per device and signal, and those are refreshed by the main loop too, so the
+ * thread reads its own clones and only it refreshes them. Pose reads are a volatile snapshot and never block. Vision
+ * measurements take the estimator lock, which the thread holds for one estimator update at a time. Pose resets are
+ * handed to the thread and applied on its next sample.
+ */
+public class OdometryThread extends Thread {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final StatusSignal<Double>[] drivePositions;
+    private final StatusSignal<Double>[] driveVelocities;
+    private final StatusSignal<Double>[] anglePositions;
+    private final StatusSignal<Double> yaw;
+    private final StatusSignal<Double> yawVelocity;
+    private final BaseStatusSignal[] moduleSignals;
+
+    private final SwerveModulePosition[] positions = new SwerveModulePosition[4];
+    private final SwerveDrivePoseEstimator estimator;
+    private final PoseHistory history = new PoseHistory(POSE_HISTORY_CAPACITY);
+    // speed and angle of each module, written alternately so a reader never sees a half written sample
+    private final double[][] moduleStateBuffers = new double[2][8];
+    private volatile double[] moduleStates = moduleStateBuffers[0];
+
+    private volatile Pose2d pose = new Pose2d();
+    private volatile double lastTimestamp = 0;
+    private volatile int failedWaits = 0;
+    private volatile Pose2d pendingReset;
+    private volatile int resets = 0;
+    private volatile double yawDegrees = 0;
+    private volatile boolean injecting = false;
+
+    private Rotation2d gyroAngle = new Rotation2d();
+
+    @SuppressWarnings("unchecked")
+    public OdometryThread(Pigeon2 gyro, SwerveModule[] modules) {
+        setName("Odometry");
+        setDaemon(true);
+
+        drivePositions = new StatusSignal[4];
+        driveVelocities = new StatusSignal[4];
+        anglePositions = new StatusSignal[4];
+        moduleSignals = new BaseStatusSignal[12];
+        for (int i = 0; i < 4; i++) {
+            final TalonFX driveMotor = ((NAR_TalonFX) modules[i].getDriveMotor()).getMotor();
+            final TalonFX angleMotor = ((NAR_TalonFX) modules[i].getAngleMotor()).getMotor();
+            drivePositions[i] = driveMotor.getPosition().clone();
+            driveVelocities[i] = driveMotor.getVelocity().clone();
+            anglePositions[i] = angleMotor.getPosition().clone();
+            moduleSignals[i * 3] = drivePositions[i];
+            moduleSignals[i * 3 + 1] = driveVelocities[i];
+            moduleSignals[i * 3 + 2] = anglePositions[i];
+            positions[i] = new SwerveModulePosition();
+        }
+        yaw = gyro.getYaw().clone();
+        yawVelocity = gyro.getAngularVelocityZWorld().clone();
+
+        BaseStatusSignal.setUpdateFrequencyForAll(ODOMETRY_FREQUENCY, moduleSignals);
+        // set explicitly so optimizeBusUtilization keeps them
+        BaseStatusSignal.setUpdateFrequencyForAll(GYRO_FREQUENCY, yaw, yawVelocity);
+
+        BaseStatusSignal.refreshAll(moduleSignals);
+        BaseStatusSignal.refreshAll(yaw, yawVelocity);
+        sample();
+        estimator = new SwerveDrivePoseEstimator(swerveKinematics, gyroAngle, positions, new Pose2d(), SVR_STATE_STD, SVR_VISION_MEASUREMENT_STD);
+    }
+
+    @Override
+    public void run() {
+        Threads.setCurrentThreadPriority(true, 1);
+        while (!isInterrupted()) {
+            final var status = BaseStatusSignal.waitForAll(2.0 / ODOMETRY_FREQUENCY, moduleSignals);
+            if (!status.isOK()) {
+                failedWaits++;
+                continue;
+            }
+            BaseStatusSignal.refreshAll(yaw, yawVelocity);
+            final double timestamp = Timer.getFPGATimestamp() - drivePositions[0].getTimestamp().getLatency();
+
+            lock.lock();
+            try {
+                sample();
+                final Pose2d reset = pendingReset;
+                if (reset != null) {
+                    pendingReset = null;
+                    estimator.resetPosition(gyroAngle, positions, reset);
+                    history.clear();
+                }
+                pose = estimator.updateWithTime(timestamp, gyroAngle, positions);
+                lastTimestamp = timestamp;
+                history.add(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        Log.info("Odometry", "Odometry thread stopped");
+    }
+
+    private void sample() {
+        final double[] states = moduleStates == moduleStateBuffers[0] ? moduleStateBuffers[1] : moduleStateBuffers[0];
+        for (int i = 0; i < 4; i++) {
+            positions[i].distanceMeters = BaseStatusSignal.getLatencyCompensatedValue(drivePositions[i], driveVelocities[i]) * DRIVE_METERS_PER_ROTATION;
+            positions[i].angle = Rotation2d.fromDegrees(anglePositions[i].getValue() * ANGLE_DEGREES_PER_ROTATION);
+            states[i * 2] = driveVelocities[i].getValue() * DRIVE_METERS_PER_ROTATION;
+            states[i * 2 + 1] = positions[i].angle.getDegrees();
+        }
+        moduleStates = states;
+        yawDegrees = BaseStatusSignal.getLatencyCompensatedValue(yaw, yawVelocity);
+        gyroAngle = Rotation2d.fromDegrees(yawDegrees);
+    }
+
+    /**
+     * @return Latest pose estimate, safe to call from any thread without blocking on odometry.
+     */
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    /**
+     * @return Gyro yaw in degrees as of the last odometry sample, continuous past 360.
+     */
+    public double getYaw() {
+        return yawDegrees;
+    }
+
+    /**
+     * @return Speed in meters per second of a module as of the last odometry sample.
+     */
+    public double getModuleSpeed(int module) {
+        return moduleStates[module * 2];
+    }
+
+    /**
+     * @return Angle in degrees of a module as of the last odometry sample.
+     */
+    public double getModuleAngle(int module) {
+        return moduleStates[module * 2 + 1];
+    }
+
+    public PoseHistory getHistory() {
+        return history;
+    }
+
+    public double getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getFailedWaits() {
+        return failedWaits;
+    }
+
+    public void addVisionMeasurement(Pose2d measurement, double timestamp) {
+        lock.lock();
+        try {
+            estimator.addVisionMeasurement(measurement, timestamp);
+            pose = estimator.getEstimatedPosition();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops estimating the pose and waits for the thread to finish its last sample, so {@link #injectPose} is the only writer.
+     */
+    public void stopEstimating() {
+        injecting = true;
+        interrupt();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the pose and yaw directly instead of estimating them, used by the headless simulation since it steps time
+     * faster than the status signals update.
+     */
+    public void injectPose(double timestamp, Pose2d injected, double injectedYaw) {
+        lock.lock();
+        try {
+            pose = injected;
+            yawDegrees = injectedYaw;
+            lastTimestamp = timestamp;
+            history.add(timestamp, injected.getX(), injected.getY(), injected.getRotation().getRadians());
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of pose resets so far, to notice resets made elsewhere.
+     */
+    public int getResets() {
+        return resets;
+    }
+
+    public void resetPose(Pose2d resetPose) {
+        pose = resetPose;
+        resets++;
+        // whoever injects poses moves to the reset pose themselves
+        if (injecting) return;
+        if (isAlive()) {
+            pendingReset = resetPose;
+            return;
+        }
+        lock.lock();
+        try {
+            BaseStatusSignal.refreshAll(moduleSignals);
+            BaseStatusSignal.refreshAll(yaw, yawVelocity);
+            sample();
+            estimator.resetPosition(gyroAngle, positions, resetPose);
+            history.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package frc.team3128.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Fixed-capacity history of field relative poses and velocities stored in primitive arrays.
+ * <p>
+ * Samples must be added in increasing timestamp order. Lookups binary search the ring and interpolate between the
+ * two surrounding samples, so "where was the robot at time t" costs O(log n) and allocates nothing.
+ * Velocities are differenced over {@link #VELOCITY_LAG} samples to keep high rate odometry noise down.
+ */
+public class PoseHistory {
+
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int THETA = 2;
+    public static final int VX = 3;
+    public static final int VY = 4;
+    public static final int OMEGA = 5;
+    public static final int SAMPLE_SIZE = 6;
+
+    public static final int VELOCITY_LAG = 5;
+
+    private final double[] timestamps;
+    private final double[][] values;
+    private final int capacity;
+
+    private int head = 0;
+    private int size = 0;
+
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        timestamps = new double[capacity];
+        values = new double[SAMPLE_SIZE][capacity];
+    }
+
+    public synchronized void add(double timestamp, double x, double y, double theta) {
+        if (size > 0 && timestamp <= timestamps[physical(size - 1)]) return;
+
+        final int index = size < capacity ? physical(size) : head;
+        if (size == capacity) head = (head + 1) % capacity;
+        else size++;
+
+        timestamps[index] = timestamp;
+        values[X][index] = x;
+        values[Y][index] = y;
+        values[THETA][index] = theta;
+
+        if (size > VELOCITY_LAG) {
+            final int previous = physical(size - 1 - VELOCITY_LAG);
+            final double dt = timestamp - timestamps[previous];
+            values[VX][index] = (x - values[X][previous]) / dt;
+            values[VY][index] = (y - values[Y][previous]) / dt;
+            values[OMEGA][index] = MathUtil.angleModulus(theta - values[THETA][previous]) / dt;
+        }
+        else {
+            values[VX][index] = 0;
+            values[VY][index] = 0;
+            values[OMEGA][index] = 0;
+        }
+    }
+
+    /**
+     * Interpolates the history at a timestamp, clamping to the oldest or newest sample outside the stored range.
+     * @param timestamp FPGA timestamp in seconds.
+     * @param out Array of at least {@link #SAMPLE_SIZE} filled with x, y, theta, vx, vy, omega.
+     * @return False if the history is empty.
+     */
+    public synchronized boolean sample(double timestamp, double[] out) {
+        if (size == 0) return false;
+
+        if (timestamp <= timestamps[physical(0)]) {
+            copy(physical(0), out);
+            return true;
+        }
+        if (timestamp >= timestamps[physical(size - 1)]) {
+            copy(physical(size - 1), out);
+            return true;
+        }
+
+        // first logical index with a timestamp greater than the query
+        int low = 1;
+        int high = size - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] > timestamp) high = mid;
+            else low = mid + 1;
+        }
+
+        final int after = physical(low);
+        final int before = physical(low - 1);
+        final double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            if (i == THETA) {
+                out[i] = MathUtil.angleModulus(values[i][before] + MathUtil.angleModulus(values[i][after] - values[i][before]) * t);
+            }
+            else {
+                out[i] = values[i][before] + (values[i][after] - values[i][before]) * t;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allocating convenience for code outside the loop.
+     */
+    public Pose2d getPose(double timestamp) {
+        final double[] out = new double[SAMPLE_SIZE];
+        if (!sample(timestamp, out)) return null;
+        return new Pose2d(out[X], out[Y], new Rotation2d(out[THETA]));
+    }
+
+    public synchronized boolean latest(double[] out) {
+        if (size == 0) return false;
+        copy(physical(size - 1), out);
+        return true;
+    }
+
+    public synchronized double getOldestTimestamp() {
+        return size == 0 ? 0 : timestamps[physical(0)];
+    }
+
+    public synchronized double getNewestTimestamp() {
+        return size == 0 ? 0 : timestamps[physical(size - 1)];
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int physical(int logical) {
+        return (head + logical) % capacity;
+    }
+
+    private void copy(int index, double[] out) {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            out[i] = values[i][index];
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package frc.team3128.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer queue of timestamped poses.
+ * <p>
+ * Measurements are stored in primitive arrays so neither side allocates. Exactly one thread may call
+ * {@link #offer} and exactly one other thread may call {@link #poll}.
+ */
+public class PoseMeasurementQueue {
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] theta;
+    private final double[] timestamps;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private double lastX, lastY, lastTheta, lastTimestamp;
+
+    /**
+     * @param capacity Maximum queued measurements, rounded up to a power of two.
+     */
+    public PoseMeasurementQueue(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        x = new double[size];
+        y = new double[size];
+        theta = new double[size];
+        timestamps = new double[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Producer side.
+     * @return False if the queue was full and the measurement was dropped.
+     */
+    public boolean offer(double x, double y, double theta, double timestamp) {
+        final long t = tail.get();
+        if (t - head.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        final int index = (int) (t & mask);
+        this.x[index] = x;
+        this.y[index] = y;
+        this.theta[index] = theta;
+        timestamps[index] = timestamp;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Copies the oldest measurement into {@link #getX()}, {@link #getY()},
+     * {@link #getTheta()} and {@link #getTimestamp()}.
+     * @return False if the queue was empty.
+     */
+    public boolean poll() {
+        final long h = head.get();
+        if (h == tail.get()) return false;
+        final int index = (int) (h & mask);
+        lastX = x[index];
+        lastY = y[index];
+        lastTheta = theta[index];
+        lastTimestamp = timestamps[index];
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    public double getX() {
+        return lastX;
+    }
+
+    public double getY() {
+        return lastY;
+    }
+
+    public double getTheta() {
+        return lastTheta;
+    }
+
+    public double getTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
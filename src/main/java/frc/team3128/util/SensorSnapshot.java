@@ -0,0 +1,183 @@
+package frc.team3128.util;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples every registered sensor once per loop into a flat array, so the flags and triggers polled many times a loop
+ * read the array instead of the hardware.
+ * <p>
+ * Flags built with {@link #condition} are cached and only re-evaluated on loops where one of their inputs changed.
+ * Inputs registered without a reader are derived, set each loop by code that fuses the sampled inputs.
+ */
+public class SensorSnapshot {
+
+    public static final int MAX_INPUTS = 32;
+
+    private static SensorSnapshot instance;
+
+    private final DoubleSupplier[] readers = new DoubleSupplier[MAX_INPUTS];
+    private final String[] names = new String[MAX_INPUTS];
+    private final double[] values = new double[MAX_INPUTS];
+    private final long[] changed = new long[MAX_INPUTS];
+
+    private int numInputs = 0;
+    private long cycle = 0;
+    private double timestamp = 0;
+
+    public static synchronized SensorSnapshot getInstance() {
+        if (instance == null) {
+            instance = new SensorSnapshot();
+        }
+        return instance;
+    }
+
+    private SensorSnapshot() {}
+
+    /**
+     * @param name Name of the input.
+     * @param reader Reads the sensor, called once per loop.
+     * @return Index of the input in the snapshot.
+     */
+    public int register(String name, DoubleSupplier reader) {
+        return add(name, reader);
+    }
+
+    /**
+     * Registers a derived input, only changed through {@link #set}.
+     */
+    public int register(String name) {
+        return add(name, null);
+    }
+
+    private synchronized int add(String name, DoubleSupplier reader) {
+        if (numInputs == MAX_INPUTS) throw new IllegalStateException("Too many sensor inputs, increase MAX_INPUTS");
+        final int input = numInputs++;
+        readers[input] = reader;
+        names[input] = name;
+        return input;
+    }
+
+    /**
+     * Registers a digital input, stored as 1 when the input reads high.
+     */
+    public int register(String name, DigitalInput digitalInput) {
+        return register(name, ()-> digitalInput.get() ? 1 : 0);
+    }
+
+    /**
+     * Reads every input, call once at the start of the loop.
+     */
+    public void sample() {
+        cycle++;
+        timestamp = Timer.getFPGATimestamp();
+        for (int i = 0; i < numInputs; i++) {
+            if (readers[i] != null) set(i, readers[i].getAsDouble());
+        }
+    }
+
+    /**
+     * Sets a derived input for this loop, call right after {@link #sample()} so every flag sees the new value.
+     */
+    public void set(int input, double value) {
+        if (value != values[input] || changed[input] == 0) {
+            values[input] = value;
+            changed[input] = cycle;
+        }
+    }
+
+    public void set(int input, boolean value) {
+        set(input, value ? 1 : 0);
+    }
+
+    /**
+     * @return FPGA time the inputs were sampled at this loop, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    public double get(int input) {
+        return values[input];
+    }
+
+    public boolean getBoolean(int input) {
+        return values[input] != 0;
+    }
+
+    /**
+     * @return Input registered under a name, or -1 if there is none.
+     */
+    public int getInput(String name) {
+        for (int i = 0; i < numInputs; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public String getName(int input) {
+        return names[input];
+    }
+
+    public int getNumInputs() {
+        return numInputs;
+    }
+
+    /**
+     * @param expression Evaluated against the snapshot, must only depend on the listed inputs.
+     * @param inputs Inputs the expression reads.
+     * @return Flag that is re-evaluated only after one of its inputs changed.
+     */
+    public Condition condition(BooleanSupplier expression, int... inputs) {
+        return new Condition(expression, inputs);
+    }
+
+    public class Condition implements BooleanSupplier {
+        private final BooleanSupplier expression;
+        private final int[] inputs;
+        private long evaluated = -1;
+        private boolean value;
+
+        private Condition(BooleanSupplier expression, int[] inputs) {
+            this.expression = expression;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            if (evaluated >= 0 && !changedSince(evaluated)) return value;
+            value = expression.getAsBoolean();
+            evaluated = cycle;
+            return value;
+        }
+
+        private boolean changedSince(long evaluatedCycle) {
+            for (final int input : inputs) {
+                if (changed[input] > evaluatedCycle) return true;
+            }
+            return false;
+        }
+
+        public Condition negate() {
+            return new Condition(()-> !getAsBoolean(), inputs);
+        }
+
+        public Condition and(Condition other) {
+            return new Condition(()-> getAsBoolean() && other.getAsBoolean(), merge(other));
+        }
+
+        public Condition or(Condition other) {
+            return new Condition(()-> getAsBoolean() || other.getAsBoolean(), merge(other));
+        }
+
+        private int[] merge(Condition other) {
+            final int[] merged = new int[inputs.length + other.inputs.length];
+            System.arraycopy(inputs, 0, merged, 0, inputs.length);
+            System.arraycopy(other.inputs, 0, merged, inputs.length, other.inputs.length);
+            return merged;
+        }
+    }
+}
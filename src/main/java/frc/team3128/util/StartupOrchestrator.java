@@ -0,0 +1,114 @@
+package frc.team3128.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import common.utility.Log;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+
+/**
+ * Startup helpers that keep code-ready time down after a reboot and record where the time goes.
+ * <p>
+ * Device heavy static initializers can be run concurrently with {@link #initInParallel}, fixed sleeps are replaced
+ * with {@link #waitFor} polling a readiness check with a timeout, and every phase is recorded with {@link #mark}.
+ * Subsystems themselves are still constructed on the main thread because the command scheduler registers them in
+ * collections that are not thread safe.
+ */
+public class StartupOrchestrator {
+
+    public static final double POLL_PERIOD = 0.01;
+    public static final double PARALLEL_INIT_TIMEOUT = 10;
+
+    private static final long startTime = System.nanoTime();
+    private static long lastMark = startTime;
+    private static final ArrayList<String> timeline = new ArrayList<String>();
+    private static StringArrayPublisher timelinePublisher;
+
+    private StartupOrchestrator() {}
+
+    /**
+     * Records the end of a startup phase.
+     * @param phase Name of the phase that just finished.
+     */
+    public static synchronized void mark(String phase) {
+        final long now = System.nanoTime();
+        final String entry = String.format("%s: %.3f s (at %.3f s)", phase, (now - lastMark) / 1e9, (now - startTime) / 1e9);
+        timeline.add(entry);
+        lastMark = now;
+        Log.info("Startup", entry);
+    }
+
+    /**
+     * Runs the static initializers of the given classes concurrently and waits for all of them.
+     * @param timeout Seconds to wait before giving up and letting the main thread initialize the rest.
+     */
+    public static void initInParallel(double timeout, Class<?>... classes) {
+        final ExecutorService executor = Executors.newFixedThreadPool(classes.length, runnable -> {
+            final Thread thread = new Thread(runnable, "Startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final Class<?> clazz : classes) {
+            futures.add(executor.submit(() -> {
+                try {
+                    Class.forName(clazz.getName(), true, clazz.getClassLoader());
+                }
+                catch (ClassNotFoundException e) {
+                    Log.recoverable("Startup", "Could not initialize " + clazz.getName());
+                }
+            }));
+        }
+        final long deadline = System.nanoTime() + (long) (timeout * 1e9);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            catch (Exception e) {
+                Log.recoverable("Startup", "Initializing " + classes[i].getSimpleName() + " failed: " + e);
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Polls a readiness check instead of sleeping a fixed time.
+     * @param name Name used in the timeline.
+     * @param ready Condition polled every {@link #POLL_PERIOD} seconds.
+     * @param timeout Seconds to wait before continuing anyways.
+     * @return True if the condition became true before the timeout.
+     */
+    public static boolean waitFor(String name, BooleanSupplier ready, double timeout) {
+        final long deadline = System.nanoTime() + (long) (timeout * 1e9);
+        boolean isReady = ready.getAsBoolean();
+        while (!isReady && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep((long) (POLL_PERIOD * 1000));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            isReady = ready.getAsBoolean();
+        }
+        if (!isReady) Log.recoverable("Startup", name + " not ready after " + timeout + " s");
+        mark(name + (isReady ? "" : " (timed out)"));
+        return isReady;
+    }
+
+    /**
+     * Publishes the timeline to NetworkTables, call once startup is done.
+     */
+    public static synchronized void publish() {
+        mark("Startup complete");
+        if (timelinePublisher == null) {
+            timelinePublisher = NetworkTableInstance.getDefault().getTable("Startup").getStringArrayTopic("Timeline").publish();
+        }
+        timelinePublisher.set(timeline.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,159 @@
+package frc.team3128.util;
+
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Single publisher for dashboard telemetry. Every entry is sampled at the rate of its {@link Tier} instead of every
+ * loop, only sent when its value changed, and the whole update stops once it has used {@link #BUDGET_MS} of the loop.
+ * Entries cut off by the budget are first in line next loop.
+ * <p>
+ * Entries of a tier are spread over its period so the slow tiers do not all land on the same loop.
+ */
+public class TelemetryPublisher {
+
+    public static final double BUDGET_MS = 0.5;
+    // entries sampled between budget checks
+    private static final int CHECK_INTERVAL = 4;
+
+    public enum Tier {
+        FAST(1),
+        MEDIUM(5),
+        SLOW(50);
+
+        private final int period;
+
+        private Tier(int period) {
+            this.period = period;
+        }
+
+        /**
+         * @return Loops between samples.
+         */
+        public int getPeriod() {
+            return period;
+        }
+    }
+
+    private static class Entry {
+        private final DoubleSupplier reader;
+        private final DoublePublisher doublePublisher;
+        private final BooleanPublisher booleanPublisher;
+        private final int period;
+        private long nextLoop;
+        private double value = Double.NaN;
+        private boolean sent = false;
+
+        private Entry(DoubleSupplier reader, DoublePublisher doublePublisher, BooleanPublisher booleanPublisher, Tier tier, long firstLoop) {
+            this.reader = reader;
+            this.doublePublisher = doublePublisher;
+            this.booleanPublisher = booleanPublisher;
+            this.period = tier.getPeriod();
+            this.nextLoop = firstLoop;
+        }
+    }
+
+    private static TelemetryPublisher instance;
+
+    private final ArrayList<Entry> entries = new ArrayList<Entry>();
+    private final int[] tierCounts = new int[Tier.values().length];
+    private final NetworkTableInstance networkTables = NetworkTableInstance.getDefault();
+
+    private long loop = 0;
+    private int cursor = 0;
+    private long sent = 0;
+    private long skipped = 0;
+    private int budgetOverruns = 0;
+
+    public static synchronized TelemetryPublisher getInstance() {
+        if (instance == null) {
+            instance = new TelemetryPublisher();
+        }
+        return instance;
+    }
+
+    private TelemetryPublisher() {}
+
+    /**
+     * Publishes a number to {@code table/name}. Should be called at startup, not inside the loop.
+     */
+    public synchronized void addNumber(String table, String name, DoubleSupplier supplier, Tier tier) {
+        entries.add(new Entry(supplier, networkTables.getTable(table).getDoubleTopic(name).publish(), null, tier, stagger(tier)));
+    }
+
+    /**
+     * Publishes a boolean to {@code table/name}. Should be called at startup, not inside the loop.
+     */
+    public synchronized void addBoolean(String table, String name, BooleanSupplier supplier, Tier tier) {
+        entries.add(new Entry(()-> supplier.getAsBoolean() ? 1 : 0, null, networkTables.getTable(table).getBooleanTopic(name).publish(), tier, stagger(tier)));
+    }
+
+    /**
+     * Samples a value at the rate of a tier for a publisher that polls on its own, like the NarwhalDashboard.
+     * @return Supplier of the last sample, cheap to call every loop.
+     */
+    public synchronized DoubleSupplier sampled(DoubleSupplier supplier, Tier tier) {
+        final Entry entry = new Entry(supplier, null, null, tier, stagger(tier));
+        entries.add(entry);
+        return ()-> entry.value;
+    }
+
+    private long stagger(Tier tier) {
+        return loop + tierCounts[tier.ordinal()]++ % tier.getPeriod();
+    }
+
+    /**
+     * Samples and sends the entries that are due, call once per loop.
+     */
+    public void update() {
+        loop++;
+        final int count = entries.size();
+        final long deadline = System.nanoTime() + (long) (BUDGET_MS * 1e6);
+        for (int i = 0; i < count; i++) {
+            if (i % CHECK_INTERVAL == 0 && i > 0 && System.nanoTime() > deadline) {
+                budgetOverruns++;
+                return;
+            }
+            final Entry entry = entries.get(cursor);
+            cursor = (cursor + 1) % count;
+            if (entry.nextLoop > loop) continue;
+            entry.nextLoop = loop + entry.period;
+            final double value = entry.reader.getAsDouble();
+            if (entry.sent && Double.compare(value, entry.value) == 0) {
+                skipped++;
+                continue;
+            }
+            entry.value = value;
+            entry.sent = true;
+            if (entry.doublePublisher != null) entry.doublePublisher.set(value);
+            else if (entry.booleanPublisher != null) entry.booleanPublisher.set(value != 0);
+            sent++;
+        }
+    }
+
+    /**
+     * @return Values sent since startup.
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return Samples not sent because the value had not changed.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Loops that ran out of budget before every due entry was sampled.
+     */
+    public int getBudgetOverruns() {
+        return budgetOverruns;
+    }
+}
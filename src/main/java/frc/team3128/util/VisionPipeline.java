@@ -0,0 +1,100 @@
+package frc.team3128.util;
+
+import static frc.team3128.Constants.VisionConstants.*;
+
+import common.hardware.camera.Camera;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.team3128.subsystems.Swerve;
+
+/**
+ * Polls the cameras and runs pose estimation on its own thread.
+ * <p>
+ * Estimates are handed to the main loop through a {@link PoseMeasurementQueue}, which is drained a bounded
+ * number of measurements per loop and fused into the pose estimator at their capture timestamp.
+ * The vision thread never touches swerve directly, it reads a yaw and pose snapshot published by the main loop.
+ */
+public class VisionPipeline {
+
+    private static VisionPipeline instance;
+
+    private final PoseMeasurementQueue queue = new PoseMeasurementQueue(VISION_QUEUE_CAPACITY);
+    private final Notifier notifier = new Notifier(Camera::updateAll);
+
+    private final double[] historySample = new double[PoseHistory.SAMPLE_SIZE];
+    private long rejectedMeasurements = 0;
+    private int consecutiveRejections = 0;
+
+    private volatile double yaw = 0;
+    private volatile Pose2d pose = new Pose2d();
+
+    public static synchronized VisionPipeline getInstance() {
+        if (instance == null) {
+            instance = new VisionPipeline();
+        }
+        return instance;
+    }
+
+    private VisionPipeline() {
+        notifier.setName("Vision");
+    }
+
+    public void start() {
+        notifier.startPeriodic(VISION_PERIOD);
+    }
+
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * Called from the vision thread by the camera callback.
+     */
+    public void addMeasurement(Pose2d measurement, double timestamp) {
+        queue.offer(measurement.getX(), measurement.getY(), measurement.getRotation().getRadians(), timestamp);
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    /**
+     * Called from the main loop. Publishes the swerve snapshot for the vision thread and fuses queued measurements.
+     */
+    public void update(Swerve swerve) {
+        yaw = swerve.getYaw();
+        pose = swerve.getPose();
+
+        for (int i = 0; i < MAX_MEASUREMENTS_PER_LOOP && queue.poll(); i++) {
+            // compare against where odometry thought the robot was when the frame was captured
+            if (consecutiveRejections < VISION_REJECT_LIMIT && swerve.samplePose(queue.getTimestamp(), historySample)
+                && Math.hypot(queue.getX() - historySample[PoseHistory.X], queue.getY() - historySample[PoseHistory.Y]) > VISION_REJECT_DISTANCE) {
+                rejectedMeasurements++;
+                consecutiveRejections++;
+                continue;
+            }
+            consecutiveRejections = 0;
+            swerve.addVisionMeasurement(
+                new Pose2d(queue.getX(), queue.getY(), new Rotation2d(queue.getTheta())),
+                queue.getTimestamp()
+            );
+        }
+    }
+
+    public int getQueuedMeasurements() {
+        return queue.size();
+    }
+
+    public long getDroppedMeasurements() {
+        return queue.getDropped();
+    }
+
+    public long getRejectedMeasurements() {
+        return rejectedMeasurements;
+    }
+}
@@ -0,0 +1,67 @@
+package frc.team3128.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ArrivalPredictorTest {
+
+    private static final double PERIOD = 0.02;
+    private static final double HORIZON = 2;
+    private static final double MAX_VELOCITY = 40;
+
+    // saturates the controller and reaches top speed almost at once, so a move takes its distance over the top speed
+    private static ArrivalPredictor speedLimited() {
+        return new ArrivalPredictor(100, 0, 0.1, 0.001, 0, MAX_VELOCITY, PERIOD, HORIZON);
+    }
+
+    @Test
+    public void arrivesWithinTolerance() {
+        final double time = speedLimited().predict(0, 0, 20, 0.5);
+        assertEquals(19.5 / MAX_VELOCITY, time, PERIOD);
+    }
+
+    @Test
+    public void arrivesDownward() {
+        final double time = speedLimited().predict(20, 0, 0, 0.5);
+        assertEquals(19.5 / MAX_VELOCITY, time, PERIOD);
+    }
+
+    @Test
+    public void alreadyAtSetpoint() {
+        assertEquals(0, speedLimited().predict(10, 0, 10.3, 0.5));
+    }
+
+    @Test
+    public void beyondHorizonIsInfinite() {
+        assertEquals(Double.POSITIVE_INFINITY, speedLimited().predict(0, 0, 1000, 0.5));
+    }
+
+    @Test
+    public void movingTowardSetpointArrivesSooner() {
+        final ArrivalPredictor predictor = new ArrivalPredictor(0.75, 0.2, 0.1, 0.01, 0.3, MAX_VELOCITY, PERIOD, HORIZON);
+        final double fromRest = predictor.predict(0, 0, 20, 0.5);
+        final double moving = predictor.predict(0, 20, 20, 0.5);
+        assertTrue(Double.isFinite(fromRest));
+        assertTrue(moving < fromRest);
+    }
+
+    @Test
+    public void correctionConvergesToSlowerMoves() {
+        final ArrivalPredictor predictor = speedLimited();
+        final double predicted = predictor.predict(0, 0, 20, 0.5);
+        for (int i = 0; i < 100; i++) predictor.recordMove(predictor.predict(0, 0, 20, 0.5), 1.5 * predicted);
+        assertEquals(1.5, predictor.getCorrection(), 0.01);
+        assertEquals(1.5 * predicted, predictor.predict(0, 0, 20, 0.5), 0.01);
+    }
+
+    @Test
+    public void ignoresUnusableMoves() {
+        final ArrivalPredictor predictor = speedLimited();
+        predictor.recordMove(0, 1);
+        predictor.recordMove(Double.POSITIVE_INFINITY, 1);
+        predictor.recordMove(1, 0);
+        assertEquals(1, predictor.getCorrection());
+    }
+}
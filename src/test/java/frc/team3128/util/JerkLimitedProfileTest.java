@@ -0,0 +1,89 @@
+package frc.team3128.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class JerkLimitedProfileTest {
+
+    private static final double MAX_VELOCITY = 500;
+    private static final double MAX_ACCELERATION = 3000;
+    private static final double MAX_JERK = 30000;
+    private static final double DT = 1e-4;
+    private static final double EPSILON = 1e-6;
+
+    private final JerkLimitedProfile profile = new JerkLimitedProfile(MAX_VELOCITY, MAX_ACCELERATION, MAX_JERK);
+
+    /**
+     * Samples the whole profile, checks it stays within the limits and ends at rest on the goal.
+     * @return Peak velocity and acceleration.
+     */
+    private double[] sampleAll(double start, double goal) {
+        profile.plan(start, goal);
+        double peakVelocity = 0;
+        double peakAcceleration = 0;
+        double previous = start;
+        for (double t = 0; t <= profile.getTotalTime() + DT; t += DT) {
+            profile.sample(t);
+            assertTrue(Math.abs(profile.getVelocity()) <= MAX_VELOCITY + EPSILON, "velocity at " + t);
+            assertTrue(Math.abs(profile.getAcceleration()) <= MAX_ACCELERATION + EPSILON, "acceleration at " + t);
+            // never moves away from the goal
+            assertTrue((profile.getPosition() - previous) * Math.signum(goal - start) >= -EPSILON, "position at " + t);
+            previous = profile.getPosition();
+            peakVelocity = Math.max(peakVelocity, Math.abs(profile.getVelocity()));
+            peakAcceleration = Math.max(peakAcceleration, Math.abs(profile.getAcceleration()));
+        }
+        profile.sample(profile.getTotalTime());
+        assertEquals(goal, profile.getPosition(), EPSILON);
+        assertEquals(0, profile.getVelocity(), EPSILON);
+        assertEquals(0, profile.getAcceleration(), EPSILON);
+        return new double[] {peakVelocity, peakAcceleration};
+    }
+
+    @Test
+    public void shortMoveOnlyLimitsJerk() {
+        final double[] peaks = sampleAll(0, 10);
+        // four jerk segments of equal length cover the distance
+        final double jerkTime = Math.cbrt(10 / (2 * MAX_JERK));
+        assertEquals(4 * jerkTime, profile.getTotalTime(), EPSILON);
+        assertTrue(peaks[1] < MAX_ACCELERATION);
+    }
+
+    @Test
+    public void mediumMoveReachesAccelerationLimit() {
+        final double[] peaks = sampleAll(0, 100);
+        assertEquals(MAX_ACCELERATION, peaks[1], 1);
+        assertTrue(peaks[0] < MAX_VELOCITY);
+        // no cruise, speeds up and slows down through the peak velocity
+        final double peakVelocity = MAX_ACCELERATION * (Math.sqrt(0.01 + 4 * 100 / MAX_ACCELERATION) - 0.1) / 2;
+        assertEquals(peakVelocity, peaks[0], 0.5);
+        assertEquals(2 * (peakVelocity / MAX_ACCELERATION + MAX_ACCELERATION / MAX_JERK), profile.getTotalTime(), EPSILON);
+    }
+
+    @Test
+    public void longMoveCruises() {
+        final double[] peaks = sampleAll(0, 220);
+        assertEquals(MAX_VELOCITY, peaks[0], 0.5);
+        assertEquals(MAX_ACCELERATION, peaks[1], 1);
+        final double expected = 220 / MAX_VELOCITY + MAX_VELOCITY / MAX_ACCELERATION + MAX_ACCELERATION / MAX_JERK;
+        assertEquals(expected, profile.getTotalTime(), EPSILON);
+    }
+
+    @Test
+    public void movesDownMirrorMovesUp() {
+        sampleAll(220, 0);
+        final double down = profile.getTotalTime();
+        profile.plan(0, 220);
+        assertEquals(profile.getTotalTime(), down, EPSILON);
+    }
+
+    @Test
+    public void zeroLengthMoveIsDone() {
+        profile.plan(42, 42);
+        assertEquals(0, profile.getTotalTime(), EPSILON);
+        profile.sample(0);
+        assertEquals(42, profile.getPosition(), EPSILON);
+        assertEquals(0, profile.getVelocity(), EPSILON);
+    }
+}